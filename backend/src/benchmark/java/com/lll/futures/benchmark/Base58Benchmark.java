@@ -0,0 +1,78 @@
+package com.lll.futures.benchmark;
+
+import com.lll.futures.service.solana.Base58;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base58 encoding of public keys (32 bytes) and signatures (64 bytes) with the Base58 codec,
+ * against SolanaJ's PublicKey.toBase58(). Correctness against SolanaJ is covered by Base58Test.
+ *
+ *   mvn -Pbenchmark compile exec:exec -Dbenchmark.main=org.openjdk.jmh.Main -Dbenchmark.args="Base58Benchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Base58Benchmark {
+
+    private byte[] publicKey;
+    private byte[] signature;
+    private String encodedPublicKey;
+    private String encodedSignature;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(58);
+        publicKey = new byte[32];
+        random.nextBytes(publicKey);
+        signature = new byte[64];
+        random.nextBytes(signature);
+        encodedPublicKey = Base58.encode(publicKey);
+        encodedSignature = Base58.encode(signature);
+    }
+
+    @Benchmark
+    public String encodePublicKey() {
+        return Base58.encode(publicKey);
+    }
+
+    @Benchmark
+    public String encodePublicKeySolanaJ() {
+        return new PublicKey(publicKey).toBase58();
+    }
+
+    @Benchmark
+    public String encodeSignature() {
+        return Base58.encode(signature);
+    }
+
+    @Benchmark
+    public byte[] decodePublicKey() {
+        return Base58.decode(encodedPublicKey);
+    }
+
+    @Benchmark
+    public PublicKey decodePublicKeySolanaJ() {
+        return new PublicKey(encodedPublicKey);
+    }
+
+    @Benchmark
+    public byte[] decodeSignature() {
+        return Base58.decode(encodedSignature);
+    }
+}
@@ -0,0 +1,153 @@
+package com.lll.futures.benchmark;
+
+import com.lll.futures.security.JwtAuthenticationFilter;
+import com.lll.futures.security.JwtPrincipal;
+import com.lll.futures.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Proxy;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT authentication cost: the previous path (four full parses, each rebuilding the
+ * SecretKey and a JwtParser) against JwtUtil.parseToken with the cached key and parser, plus the
+ * whole JwtAuthenticationFilter on a Bearer request. Setup checks that both paths agree on the
+ * token's claims and that the filter authenticates the request.
+ *
+ *   mvn -Pbenchmark compile exec:exec -Dbenchmark.main=org.openjdk.jmh.Main -Dbenchmark.args="JwtAuthenticationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "benchmark-jwt-secret-that-is-comfortably-longer-than-256-bits";
+
+    private JwtUtil jwtUtil;
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setup() throws Exception {
+        jwtUtil = new JwtUtil(SECRET, 86_400_000L);
+        filter = new JwtAuthenticationFilter(jwtUtil);
+        token = jwtUtil.generateToken("benchmark-user", 42L, true);
+        request = bearerRequest(token);
+        response = (HttpServletResponse) Proxy.newProxyInstance(
+                JwtAuthenticationBenchmark.class.getClassLoader(),
+                new Class<?>[] {HttpServletResponse.class},
+                (proxy, method, args) -> defaultValue(method.getReturnType()));
+
+        JwtPrincipal principal = jwtUtil.parseToken(token);
+        JwtPrincipal legacy = legacyAuthenticate();
+        if (!principal.equals(legacy) || !"benchmark-user".equals(principal.getName())
+                || principal.userId() != 42L || !principal.admin()) {
+            throw new IllegalStateException("Token claims disagree: " + principal + " vs " + legacy);
+        }
+
+        Authentication authentication = filter();
+        if (authentication == null || !"benchmark-user".equals(authentication.getName())
+                || authentication.getAuthorities().size() != 2) {
+            throw new IllegalStateException("Filter did not authenticate the request: " + authentication);
+        }
+    }
+
+    /**
+     * The previous filter path: extractUsername, extractUserId, extractIsAdmin and validateToken,
+     * each verifying the token with a freshly built key and parser
+     */
+    @Benchmark
+    public JwtPrincipal legacyAuthenticate() {
+        String username = legacyClaims().getSubject();
+        Long userId = legacyClaims().get("userId", Long.class);
+        Boolean isAdmin = legacyClaims().get("isAdmin", Boolean.class);
+        Claims claims = legacyClaims();
+        if (!username.equals(claims.getSubject()) || claims.getExpiration().before(new Date())) {
+            throw new IllegalStateException("Token rejected");
+        }
+        return new JwtPrincipal(username, userId, Boolean.TRUE.equals(isAdmin));
+    }
+
+    @Benchmark
+    public JwtPrincipal parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public Authentication filter() throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, response, chain);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private Claims legacyClaims() {
+        byte[] keyBytes = SECRET.getBytes();
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    /**
+     * Just enough of a request for the filter: the Authorization header, request attributes
+     * (OncePerRequestFilter marks the request with one) and a remote address for the details
+     */
+    private static HttpServletRequest bearerRequest(String token) {
+        Map<String, Object> attributes = new HashMap<>();
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                JwtAuthenticationBenchmark.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getHeader" -> "Authorization".equalsIgnoreCase((String) args[0]) ? "Bearer " + token : null;
+                    case "getAttribute" -> attributes.get((String) args[0]);
+                    case "setAttribute" -> attributes.put((String) args[0], args[1]);
+                    case "removeAttribute" -> attributes.remove((String) args[0]);
+                    case "getDispatcherType" -> DispatcherType.REQUEST;
+                    case "getRemoteAddr" -> "127.0.0.1";
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package com.lll.futures.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal local Solana JSON-RPC server for exercising the RPC client without a network.
+ *
+ * Answers single and batched requests for the methods SolanaService uses with canned
+ * results. Latency, jitter and failure rate are adjustable at runtime so endpoint
+ * routing, hedging and failover can be observed by running several instances.
+ *
+ * Arguments (key=value):
+ *   ports=8899,8900      one server per port
+ *   latencyMs=20         base response latency (per port: latencyMs=20,200)
+ *   jitterMs=5           random extra latency
+ *   failureRate=0.0      fraction of requests answered with HTTP 503 (per port allowed)
+ */
+public class MockSolanaRpcServer {
+
+    private static final long TOKEN_ACCOUNT_AMOUNT = 1_000_000_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong blockHeight = new AtomicLong(1_000);
+    private volatile long latencyMs;
+    private volatile long jitterMs;
+    private volatile double failureRate;
+
+    public MockSolanaRpcServer(int port, long latencyMs, long jitterMs, double failureRate) throws IOException {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length == 2) {
+                options.put(parts[0], parts[1]);
+            }
+        }
+        String[] ports = options.getOrDefault("ports", "8899").split(",");
+        String[] latencies = options.getOrDefault("latencyMs", "20").split(",");
+        String[] jitters = options.getOrDefault("jitterMs", "5").split(",");
+        String[] failureRates = options.getOrDefault("failureRate", "0.0").split(",");
+
+        for (int i = 0; i < ports.length; i++) {
+            MockSolanaRpcServer server = new MockSolanaRpcServer(
+                Integer.parseInt(ports[i].trim()),
+                Long.parseLong(pick(latencies, i)),
+                Long.parseLong(pick(jitters, i)),
+                Double.parseDouble(pick(failureRates, i)));
+            server.start();
+            System.out.printf("Mock Solana RPC listening on %s%n", server.getUrl());
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public void setJitterMs(long jitterMs) {
+        this.jitterMs = jitterMs;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            sleep(latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0));
+
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            JsonNode response;
+            if (request.isArray()) {
+                ArrayNode responses = objectMapper.createArrayNode();
+                for (JsonNode single : request) {
+                    responses.add(answer(single));
+                }
+                response = responses;
+            } else {
+                response = answer(request);
+            }
+
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private ObjectNode answer(JsonNode request) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.path("id"));
+
+        String method = request.path("method").asText();
+        JsonNode params = request.path("params");
+        switch (method) {
+            case "getLatestBlockhash" -> {
+                ObjectNode value = withContext(response).putObject("value");
+                value.put("blockhash", "EkSnNWid2cvwEVnVx9aBqawnmiCNiDgp3gUdkDPTKN1N");
+                value.put("lastValidBlockHeight", blockHeight.get() + 150);
+            }
+            case "getBlockHeight" -> response.put("result", blockHeight.incrementAndGet());
+            case "getAccountInfo" -> {
+                ObjectNode value = withContext(response).putObject("value");
+                value.put("lamports", 2_039_280);
+                value.put("owner", "TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA");
+                value.putArray("data").add("").add("base64");
+            }
+            case "getTokenAccountBalance" -> {
+                ObjectNode value = withContext(response).putObject("value");
+                value.put("amount", Long.toString(TOKEN_ACCOUNT_AMOUNT));
+                value.put("decimals", 9);
+                value.put("uiAmount", TOKEN_ACCOUNT_AMOUNT / 1e9);
+            }
+            case "getTokenAccountsByOwner" -> {
+                ObjectNode account = withContext(response).putArray("value").addObject();
+                account.put("pubkey", params.path(0).asText());
+            }
+            case "getMultipleAccounts" -> {
+                ArrayNode values = withContext(response).putArray("value");
+                for (JsonNode ignored : params.path(0)) {
+                    ObjectNode account = values.addObject();
+                    account.put("lamports", 2_039_280);
+                    account.putArray("data").add(encodeTokenAccount(TOKEN_ACCOUNT_AMOUNT)).add("base64");
+                }
+            }
+            case "getSignatureStatuses" -> {
+                ArrayNode values = withContext(response).putArray("value");
+                for (JsonNode ignored : params.path(0)) {
+                    ObjectNode status = values.addObject();
+                    status.put("slot", blockHeight.get());
+                    status.putNull("confirmations");
+                    status.putNull("err");
+                    status.put("confirmationStatus", "finalized");
+                }
+            }
+            case "sendTransaction" -> response.put("result", UUID.randomUUID().toString().replace("-", ""));
+            default -> {
+                ObjectNode error = response.putObject("error");
+                error.put("code", -32601);
+                error.put("message", "Method not found");
+            }
+        }
+        return response;
+    }
+
+    private ObjectNode withContext(ObjectNode response) {
+        ObjectNode result = response.putObject("result");
+        result.putObject("context").put("slot", blockHeight.get());
+        return result;
+    }
+
+    private String encodeTokenAccount(long amount) {
+        // SPL token account layout: mint (32) | owner (32) | amount (u64 LE) | ...
+        ByteBuffer data = ByteBuffer.allocate(165).order(ByteOrder.LITTLE_ENDIAN);
+        data.putLong(64, amount);
+        return Base64.getEncoder().encodeToString(data.array());
+    }
+
+    private static String pick(String[] values, int index) {
+        return values[Math.min(index, values.length - 1)].trim();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.lll.futures.benchmark;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lll.futures.service.solana.RpcDecoders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding RPC responses via String + readTree + JsonNode walking (the previous
+ * approach) with the streaming RpcDecoders. Run with -prof gc to see bytes allocated per call.
+ *
+ *   mvn -Pbenchmark compile exec:exec -Dbenchmark.main=org.openjdk.jmh.Main -Dbenchmark.args="RpcDecodeBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcDecodeBenchmark {
+
+    @Param({"1", "100"})
+    public int accounts;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] multipleAccountsBody;
+    private byte[] tokenBalanceBody;
+
+    @Setup
+    public void setup() {
+        ByteBuffer data = ByteBuffer.allocate(165).order(ByteOrder.LITTLE_ENDIAN);
+        data.putLong(64, 1_234_567_890_123L);
+        String encoded = Base64.getEncoder().encodeToString(data.array());
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < accounts; i++) {
+            if (i > 0) {
+                values.append(',');
+            }
+            values.append("{\"data\":[\"").append(encoded).append("\",\"base64\"],\"executable\":false,")
+                .append("\"lamports\":2039280,\"owner\":\"TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA\",")
+                .append("\"rentEpoch\":18446744073709551615,\"space\":165}");
+        }
+        multipleAccountsBody = ("{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"apiVersion\":\"2.0.15\",\"slot\":341197053},"
+            + "\"value\":[" + values + "]},\"id\":1}").getBytes(StandardCharsets.UTF_8);
+
+        tokenBalanceBody = ("{\"jsonrpc\":\"2.0\",\"result\":{\"context\":{\"apiVersion\":\"2.0.15\",\"slot\":341197053},"
+            + "\"value\":{\"amount\":\"1234567890123\",\"decimals\":9,\"uiAmount\":1234.567890123,"
+            + "\"uiAmountString\":\"1234.567890123\"}},\"id\":1}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Long> multipleAccountsTree() throws IOException {
+        JsonNode response = objectMapper.readTree(new String(multipleAccountsBody, StandardCharsets.UTF_8));
+        JsonNode values = response.path("result").path("value");
+        List<Long> amounts = new ArrayList<>(values.size());
+        for (JsonNode account : values) {
+            byte[] raw = Base64.getDecoder().decode(account.path("data").path(0).asText());
+            amounts.add(RpcDecoders.decodeTokenAccountAmount(raw));
+        }
+        return amounts;
+    }
+
+    @Benchmark
+    public List<Long> multipleAccountsStreaming() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(multipleAccountsBody))) {
+            return RpcDecoders.TOKEN_ACCOUNT_AMOUNTS.decode(seekResult(parser));
+        }
+    }
+
+    @Benchmark
+    public Long tokenBalanceTree() throws IOException {
+        JsonNode response = objectMapper.readTree(new String(tokenBalanceBody, StandardCharsets.UTF_8));
+        return Long.parseLong(response.get("result").get("value").get("amount").asText());
+    }
+
+    @Benchmark
+    public Long tokenBalanceStreaming() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(tokenBalanceBody))) {
+            return RpcDecoders.TOKEN_ACCOUNT_BALANCE.decode(seekResult(parser));
+        }
+    }
+
+    // Position the parser on the "result" value as SolanaRpcBatchClient does
+    private static JsonParser seekResult(JsonParser parser) throws IOException {
+        parser.nextToken();
+        while (parser.nextToken() != null) {
+            if ("result".equals(parser.currentName()) && parser.currentToken() == JsonToken.FIELD_NAME) {
+                parser.nextToken();
+                return parser;
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("No result in response");
+    }
+}
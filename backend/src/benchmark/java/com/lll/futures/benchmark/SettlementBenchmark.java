@@ -0,0 +1,167 @@
+package com.lll.futures.benchmark;
+
+import com.lll.futures.FuturesApplication;
+import com.lll.futures.dto.SettleMarketRequest;
+import com.lll.futures.model.Market;
+import com.lll.futures.service.SettlementService;
+import com.lll.futures.service.SolanaService;
+import com.lll.futures.service.solana.SimulatedTokenLedger;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seeds an in-memory database with N users and M orders on one market, then times
+ * SettlementService.settleMarket against the in-process simulated token ledger.
+ *
+ * Arguments (key=value):
+ *   sizes=1000,10000,100000,1000000   number of users per run
+ *   orders=0                          orders per market (0 = one order per user)
+ *   latencyMs=0 latencySigma=0        simulated RPC latency (log-normal median and spread)
+ *   failureRate=0                     fraction of simulated RPC calls that fail
+ *   outcome=YES                       settlement outcome
+ */
+public class SettlementBenchmark {
+
+    private static final int BATCH_SIZE = 5000;
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseArgs(args);
+        String[] sizes = options.getOrDefault("sizes", "1000,10000,100000,1000000").split(",");
+        long ordersPerMarket = Long.parseLong(options.getOrDefault("orders", "0"));
+        String latencyMs = options.getOrDefault("latencyMs", "0");
+        String latencySigma = options.getOrDefault("latencySigma", "0");
+        String failureRate = options.getOrDefault("failureRate", "0");
+        Market.MarketOutcome outcome = Market.MarketOutcome.valueOf(options.getOrDefault("outcome", "YES"));
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%10s %10s %12s %14s %16s", "users", "orders", "settle (ms)", "orders/sec", "heap peak (MB)"));
+
+        for (String size : sizes) {
+            int users = Integer.parseInt(size.trim());
+            long orders = ordersPerMarket > 0 ? ordersPerMarket : users;
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FuturesApplication.class)
+                    .profiles("benchmark")
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                            "spring.datasource.url=jdbc:h2:mem:bench_" + users + ";DB_CLOSE_DELAY=-1",
+                            "solana.simulator.latency-ms=" + latencyMs,
+                            "solana.simulator.latency-sigma=" + latencySigma,
+                            "solana.simulator.failure-rate=" + failureRate)
+                    .run()) {
+
+                JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+                SettlementService settlementService = context.getBean(SettlementService.class);
+                SimulatedTokenLedger ledger = context.getBean(SolanaService.class).getSimulatedLedger();
+
+                long seedStart = System.nanoTime();
+                long marketId = seed(jdbcTemplate, users, orders);
+                System.out.printf("Seeded %d users and %d orders in %d ms%n",
+                        users, orders, (System.nanoTime() - seedStart) / 1_000_000);
+
+                System.gc();
+                resetHeapPeaks();
+                ledger.resetCounters();
+
+                long start = System.nanoTime();
+                settlementService.settleMarket(new SettleMarketRequest(marketId, outcome));
+                long elapsedNanos = System.nanoTime() - start;
+
+                double elapsedMs = elapsedNanos / 1_000_000.0;
+                double ordersPerSec = orders / (elapsedNanos / 1_000_000_000.0);
+                double heapPeakMb = heapPeakBytes() / (1024.0 * 1024.0);
+
+                report.add(String.format("%10d %10d %12.1f %14.1f %16.1f",
+                        users, orders, elapsedMs, ordersPerSec, heapPeakMb));
+                System.out.printf("Settled %d orders (%d simulated transfers, %d failed) in %.1f ms%n",
+                        orders, ledger.getTransferCount(), ledger.getFailedTransferCount(), elapsedMs);
+            } catch (Throwable t) {
+                report.add(String.format("%10d %10d   failed: %s", users, orders, t));
+            }
+        }
+
+        System.out.println();
+        report.forEach(System.out::println);
+    }
+
+    private static long seed(JdbcTemplate jdbcTemplate, int users, long orders) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> userRows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < users; i++) {
+            userRows.add(new Object[]{"bench_" + i, "bench_" + i + "@example.com", "", 1000.0, false,
+                    "BenchWallet" + i, now, now});
+            if (userRows.size() == BATCH_SIZE || i == users - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (username, email, password, token_balance, is_admin, " +
+                        "wallet_address, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", userRows);
+                userRows.clear();
+            }
+        }
+
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE username LIKE 'bench%' ORDER BY id", Long.class);
+
+        jdbcTemplate.update("INSERT INTO markets (title, status, expiry_date, yes_odds, no_odds, total_yes_stake, " +
+                "total_no_stake, total_volume, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                "Benchmark market " + users, Market.MarketStatus.ACTIVE.name(),
+                Timestamp.valueOf(LocalDateTime.now().plusDays(1)), 2.0, 2.0, 0.0, 0.0, 0.0, now, now);
+        Long marketId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM markets", Long.class);
+
+        List<Object[]> orderRows = new ArrayList<>(BATCH_SIZE);
+        for (long i = 0; i < orders; i++) {
+            int userIndex = (int) (i % userIds.size());
+            String side = i % 2 == 0 ? "YES" : "NO";
+            orderRows.add(new Object[]{userIds.get(userIndex), "BenchWallet" + userIndex, marketId, side,
+                    10.0, 2.0, 20.0, "OPEN", now, now});
+            if (orderRows.size() == BATCH_SIZE || i == orders - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO orders (user_id, wallet_address, market_id, side, stake_amount, " +
+                        "odds, potential_payout, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        orderRows);
+                orderRows.clear();
+            }
+        }
+
+        return marketId;
+    }
+
+    private static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long heapPeakBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
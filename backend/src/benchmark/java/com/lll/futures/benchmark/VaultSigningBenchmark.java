@@ -0,0 +1,132 @@
+package com.lll.futures.benchmark;
+
+import com.lll.futures.service.VaultService;
+import com.lll.futures.service.VaultShard;
+import com.lll.futures.service.solana.TransactionMessage;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.p2p.solanaj.core.Account;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.core.Transaction;
+import org.p2p.solanaj.programs.TokenProgram;
+
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.security.Signature;
+import java.security.spec.EdECPrivateKeySpec;
+import java.security.spec.NamedParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signatures per second for vault signing: the previous per-call JCA path (KeyFactory lookup,
+ * PrivateKey rebuild and a new Signature every time) against VaultShard.sign, which reuses the
+ * expanded key and a per-thread BouncyCastle Ed25519Signer. The transfer benchmarks sign a whole
+ * SPL transfer the way payouts did (SolanaJ Transaction.sign, re-expanding the key every time)
+ * and the way SolanaService now does (TransactionMessage signed by the shard).
+ *
+ *   mvn -Pbenchmark compile exec:exec -Dbenchmark.main=org.openjdk.jmh.Main -Dbenchmark.args="VaultSigningBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VaultSigningBenchmark {
+
+    // A single SPL transfer message is a little over 200 bytes
+    @Param({"256"})
+    public int messageSize;
+
+    private VaultService vaultService;
+    private VaultShard shard;
+    private Account account;
+    private byte[] message;
+    private PublicKey source;
+    private PublicKey destination;
+    private String blockhash;
+
+    @Setup
+    public void setup() {
+        if (Security.getProvider("BC") == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        // No shard keypairs configured, so no wallet service is needed to decrypt them
+        vaultService = new VaultService(null);
+        vaultService.init();
+
+        shard = vaultService.getPrimaryShard();
+        account = new Account(shard.getKeypair());
+
+        message = new byte[messageSize];
+        ThreadLocalRandom.current().nextBytes(message);
+        source = randomKey();
+        destination = randomKey();
+        blockhash = randomKey().toBase58();
+    }
+
+    @Benchmark
+    public byte[] jcaPerCall() throws Exception {
+        byte[] privateKeyBytes = Arrays.copyOfRange(vaultService.getVaultKeypair(), 0, 32);
+        KeyFactory keyFactory = KeyFactory.getInstance("Ed25519", "BC");
+        PrivateKey privateKey = keyFactory.generatePrivate(
+            new EdECPrivateKeySpec(NamedParameterSpec.ED25519, privateKeyBytes));
+        Signature signature = Signature.getInstance("Ed25519", "BC");
+        signature.initSign(privateKey);
+        signature.update(message);
+        return signature.sign();
+    }
+
+    @Benchmark
+    public byte[] cachedSigner() {
+        return shard.sign(message);
+    }
+
+    @Benchmark
+    public byte[] solanaJTransfer() {
+        Transaction transaction = new Transaction();
+        transaction.addInstruction(TokenProgram.transfer(source, destination, 1_000_000_000L, account.getPublicKey()));
+        transaction.setRecentBlockHash(blockhash);
+        transaction.sign(new Account(shard.getKeypair()));
+        return transaction.serialize();
+    }
+
+    @Benchmark
+    public byte[] shardTransfer() {
+        TransactionMessage transfer = new TransactionMessage();
+        transfer.addInstruction(TokenProgram.transfer(source, destination, 1_000_000_000L, account.getPublicKey()));
+        return transfer.signAndSerialize(shard, blockhash);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] jcaPerCallParallel() throws Exception {
+        return jcaPerCall();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] cachedSignerParallel() {
+        return shard.sign(message);
+    }
+
+    private static PublicKey randomKey() {
+        byte[] key = new byte[32];
+        ThreadLocalRandom.current().nextBytes(key);
+        return new PublicKey(key);
+    }
+}
@@ -41,6 +41,7 @@ public class SecurityConfig {
                 // Public endpoints
                 .requestMatchers("/api/users/signup", "/api/users/signin").permitAll()
                 .requestMatchers("/api/health").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
                 .requestMatchers("/h2-console/**").permitAll()
                 
                 // OAuth2 endpoints
@@ -61,6 +62,7 @@ public class SecurityConfig {
                 .requestMatchers("DELETE", "/api/markets/**").hasRole("ADMIN")
                 .requestMatchers("GET", "/api/users").hasRole("ADMIN") // GET all users only
                 .requestMatchers("GET", "/api/lll/vault").hasRole("ADMIN") // Vault info for admins only
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 
                 // All other authenticated endpoints
                 .anyRequest().authenticated()
@@ -0,0 +1,78 @@
+package com.lll.futures.config;
+
+import com.lll.futures.service.SolanaService;
+import com.lll.futures.service.VaultLedger;
+import com.lll.futures.service.VaultService;
+import com.lll.futures.service.VaultShard;
+import com.lll.futures.service.solana.RpcPriority;
+import com.lll.futures.service.solana.RpcRateLimiter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes Solana RPC client metrics (available under /actuator/metrics)
+ */
+@Component
+@RequiredArgsConstructor
+public class SolanaMetrics implements MeterBinder {
+    
+    private final SolanaService solanaService;
+    private final VaultLedger vaultLedger;
+    private final VaultService vaultService;
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("solana.vault.ledger.available", vaultLedger, VaultLedger::getAvailableBalance)
+            .description("Vault balance not reserved or committed to unsettled payouts (LLL)")
+            .register(registry);
+        
+        Gauge.builder("solana.vault.ledger.unsettled", vaultLedger, VaultLedger::getUnsettledOutflows)
+            .description("Payouts sent but not yet finalized on-chain (LLL)")
+            .register(registry);
+        
+        Gauge.builder("solana.vault.ledger.drift", vaultLedger, VaultLedger::getDrift)
+            .description("On-chain vault balance minus the ledger's expectation at the last reconciliation (LLL)")
+            .register(registry);
+        
+        for (VaultShard shard : vaultService.getShards()) {
+            String index = String.valueOf(shard.getIndex());
+            
+            Gauge.builder("solana.vault.shard.available", vaultLedger, l -> l.getAvailableBalance(shard))
+                .description("Spendable balance of a vault shard (LLL)")
+                .tag("shard", index)
+                .register(registry);
+            
+            Gauge.builder("solana.vault.shard.in-flight", shard, VaultShard::getInFlight)
+                .description("Transfers a vault shard is building or sending")
+                .tag("shard", index)
+                .register(registry);
+        }
+        
+        RpcRateLimiter limiter = solanaService.getRpcRateLimiter();
+        if (limiter == null) {
+            return;
+        }
+        
+        for (RpcPriority priority : RpcPriority.values()) {
+            String lane = priority.name().toLowerCase(Locale.ROOT);
+            
+            Gauge.builder("solana.rpc.limiter.queue", limiter, l -> l.getQueueDepth(priority))
+                .description("Calls waiting for an RPC rate limit permit")
+                .tag("priority", lane)
+                .register(registry);
+            
+            FunctionTimer.builder("solana.rpc.limiter.wait", limiter,
+                    l -> l.getAcquiredCount(priority), l -> l.getTotalWaitNanos(priority), TimeUnit.NANOSECONDS)
+                .description("Time spent waiting for an RPC rate limit permit")
+                .tag("priority", lane)
+                .register(registry);
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.lll.futures.controller;
 
 import com.lll.futures.dto.*;
+import com.lll.futures.model.Reward;
 import com.lll.futures.model.TradingReward;
+import com.lll.futures.service.BalanceReconciliationService;
+import com.lll.futures.service.HdWalletMigrationService;
 import com.lll.futures.service.LLLTokenService;
+import com.lll.futures.service.RewardDistributionService;
 import com.lll.futures.service.SolanaService;
+import com.lll.futures.service.VaultLedger;
 import com.lll.futures.service.VaultService;
+import com.lll.futures.service.VaultShard;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +32,11 @@ public class LLLTokenController {
     
     private final LLLTokenService lllTokenService;
     private final VaultService vaultService;
+    private final VaultLedger vaultLedger;
     private final SolanaService solanaService;
+    private final BalanceReconciliationService balanceReconciliationService;
+    private final HdWalletMigrationService hdWalletMigrationService;
+    private final RewardDistributionService rewardDistributionService;
     
     /**
      * Get token balance for a wallet address
@@ -227,13 +239,34 @@ public class LLLTokenController {
     public ResponseEntity<Map<String, Object>> getVaultInfo() {
         try {
             String vaultPublicKey = vaultService.getVaultPublicKey();
-            Double vaultBalance = vaultService.getVaultBalance(solanaService);
+            // Served from the vault ledger; the on-chain figure is as of the last reconciliation
+            Double vaultBalance = vaultLedger.getOnChainBalance();
             
             Map<String, Object> response = new HashMap<>();
             response.put("publicKey", vaultPublicKey);
             response.put("balance", vaultBalance);
+            response.put("available", vaultLedger.getAvailableBalance());
+            response.put("reserved", vaultLedger.getReservedAmount());
+            response.put("unsettledOutflows", vaultLedger.getUnsettledOutflows());
+            response.put("pendingInflows", vaultLedger.getPendingInflows());
+            response.put("drift", vaultLedger.getDrift());
+            response.put("pendingRewards", rewardDistributionService.calculatePendingRewards());
+            response.put("pendingRewardCount", rewardDistributionService.getPendingRewardCount());
+            response.put("reconciledAt", vaultLedger.getReconciledAt());
             response.put("configured", vaultService.isConfigured());
             
+            List<Map<String, Object>> shards = new ArrayList<>();
+            for (VaultShard shard : vaultService.getShards()) {
+                Map<String, Object> shardInfo = new HashMap<>();
+                shardInfo.put("index", shard.getIndex());
+                shardInfo.put("publicKey", shard.getPublicKey());
+                shardInfo.put("balance", vaultLedger.getOnChainBalance(shard));
+                shardInfo.put("available", vaultLedger.getAvailableBalance(shard));
+                shardInfo.put("inFlight", shard.getInFlight());
+                shards.add(shardInfo);
+            }
+            response.put("shards", shards);
+            
             log.info("Vault info requested - Balance: {} LLL", vaultBalance);
             
             return ResponseEntity.ok(response);
@@ -248,4 +281,62 @@ public class LLLTokenController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
+    
+    /**
+     * Reconcile all user balances against the chain (optionally repairing drift)
+     */
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReconciliationReportDTO> reconcileBalances(
+            @RequestParam(defaultValue = "false") boolean repair) {
+        log.info("Balance reconciliation requested (repair: {})", repair);
+        return ResponseEntity.ok(balanceReconciliationService.reconcileAll(repair));
+    }
+    
+    /**
+     * Move stored-key wallets onto HD derived keys (admin only); run again until no sweeps remain
+     */
+    @PostMapping("/wallets/migrate-hd")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<HdWalletMigrationReportDTO> migrateWalletsToHd(
+            @RequestParam(defaultValue = "100") int limit) {
+        log.info("HD wallet migration requested (limit: {})", limit);
+        return ResponseEntity.ok(hdWalletMigrationService.migrate(limit));
+    }
+    
+    /**
+     * Drop the stored keys of migrated wallets whose old address is empty (admin only); run again until none are swept
+     */
+    @PostMapping("/wallets/purge-legacy-keys")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<HdWalletMigrationReportDTO> purgeLegacyWalletKeys(
+            @RequestParam(defaultValue = "100") int limit) {
+        log.info("Legacy wallet key purge requested (limit: {})", limit);
+        return ResponseEntity.ok(hdWalletMigrationService.purgeLegacyKeys(limit));
+    }
+    
+    /**
+     * Requeue a dead-lettered reward with a fresh set of attempts (admin only)
+     */
+    @PostMapping("/rewards/{rewardId}/retry")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> retryDeadLetteredReward(@PathVariable Long rewardId) {
+        try {
+            Reward reward = rewardDistributionService.retryDeadLetter(rewardId);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("rewardId", reward.getId());
+            response.put("status", reward.getStatus());
+            response.put("nextAttemptAt", reward.getNextAttemptAt());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("Error requeueing reward {}: {}", rewardId, e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.lll.futures.controller;
 
 import com.lll.futures.dto.MarketDTO;
 import com.lll.futures.dto.SettleMarketRequest;
+import com.lll.futures.dto.SettlementPreviewDTO;
 import com.lll.futures.service.SettlementService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,12 @@ public class SettlementController {
     public ResponseEntity<MarketDTO> settleMarket(@Valid @RequestBody SettleMarketRequest request) {
         return ResponseEntity.ok(settlementService.settleMarket(request));
     }
+    
+    @GetMapping("/{marketId}/preview")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SettlementPreviewDTO> previewSettlement(@PathVariable Long marketId) {
+        return ResponseEntity.ok(settlementService.previewSettlement(marketId));
+    }
 }
 
 
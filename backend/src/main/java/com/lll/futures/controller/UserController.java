@@ -5,17 +5,18 @@ import com.lll.futures.dto.UserDTO;
 import com.lll.futures.dto.SignInRequest;
 import com.lll.futures.dto.UserSignupRequest;
 import com.lll.futures.dto.UserSignupResponse;
+import com.lll.futures.model.ProcessedDeposit;
 import com.lll.futures.model.User;
 import com.lll.futures.repository.UserRepository;
 import com.lll.futures.dto.JwtResponse;
 import com.lll.futures.service.AuthService;
+import com.lll.futures.service.DepositIndexerService;
 import com.lll.futures.service.SolanaService;
 import com.lll.futures.service.TokenSyncService;
 import com.lll.futures.service.UserService;
 import com.lll.futures.service.UserSignupService;
 import com.lll.futures.service.WalletService;
 import com.lll.futures.model.UserWallet;
-import java.util.Base64;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,6 +27,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +45,7 @@ public class UserController {
     private final AuthService authService;
     private final WalletService walletService;
     private final SolanaService solanaService;
+    private final DepositIndexerService depositIndexerService;
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -270,10 +273,8 @@ public class UserController {
             
             UserWallet wallet = walletOptional.get();
             
-            // Decrypt user's private key
-            String encryptedPrivateKey = wallet.getEncryptedPrivateKey();
-            String privateKeyBase64 = walletService.decryptPrivateKey(encryptedPrivateKey);
-            byte[] userKeypairBytes = Base64.getDecoder().decode(privateKeyBase64);
+            // Decrypt (or derive) user's keypair
+            byte[] userKeypairBytes = walletService.getWalletKeypair(wallet);
             
             log.info("Preparing withdrawal: {} LLL from user wallet {} to {}", 
                 amount, wallet.getPublicKey(), phantomWallet);
@@ -367,7 +368,7 @@ public class UserController {
     }
     
     /**
-     * Check for incoming deposits (optional - can be called periodically by frontend)
+     * Check for incoming deposits now instead of waiting for the deposit indexer's next tick
      */
     @PostMapping("/{id}/check-deposit")
     public ResponseEntity<Map<String, Object>> checkDeposit(@PathVariable Long id) {
@@ -402,26 +403,26 @@ public class UserController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Get on-chain balance
-            Double onChainBalance = solanaService.getTokenBalance(walletAddress);
+            // Credit any transfers that arrived since the account was last indexed
+            List<ProcessedDeposit> deposits = depositIndexerService.scanUser(id);
+            double credited = deposits.stream().mapToDouble(ProcessedDeposit::getAmount).sum();
             
-            // Get in-app balance
-            Double inAppBalance = user.getTokenBalance();
-            
-            // Calculate difference (potential deposit)
-            Double difference = onChainBalance - inAppBalance;
+            List<Map<String, Object>> depositDetails = new ArrayList<>();
+            for (ProcessedDeposit deposit : deposits) {
+                Map<String, Object> detail = new HashMap<>();
+                detail.put("signature", deposit.getSignature());
+                detail.put("amount", deposit.getAmount());
+                depositDetails.add(detail);
+            }
             
             response.put("success", true);
-            response.put("onChainBalance", onChainBalance);
-            response.put("inAppBalance", inAppBalance);
-            response.put("difference", difference);
-            response.put("hasDeposit", difference > 0.01); // Threshold to account for precision
-            
-            if (difference > 0.01) {
-                // Update user balance if deposit detected
-                userService.updateBalance(id, difference);
+            response.put("deposits", depositDetails);
+            response.put("credited", credited);
+            response.put("hasDeposit", !deposits.isEmpty());
+            
+            if (!deposits.isEmpty()) {
                 response.put("message", "Deposit detected! Balance updated.");
-                response.put("newBalance", inAppBalance + difference);
+                response.put("newBalance", userService.getUserEntityById(id).getTokenBalance());
             } else {
                 response.put("message", "No new deposits detected.");
             }
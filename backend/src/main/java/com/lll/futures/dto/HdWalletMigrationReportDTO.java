@@ -0,0 +1,39 @@
+package com.lll.futures.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HdWalletMigrationReportDTO {
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private Integer walletsChecked;
+    private Integer migratedWallets;
+    private Integer sweepsSent;
+    private Integer purgedKeys;
+    private Integer failedWallets;
+    private List<WalletMigration> wallets;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WalletMigration {
+        private Long userId;
+        private String oldPublicKey;
+        private String newPublicKey;
+        private String status;              // MIGRATED, PURGED, SWEPT (run again once finalized) or FAILED
+        private Double sweptAmount;
+        private Long sweptLamports;
+        private String transactionSignature;
+        private String error;
+    }
+}
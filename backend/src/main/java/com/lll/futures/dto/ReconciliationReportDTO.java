@@ -0,0 +1,38 @@
+package com.lll.futures.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReportDTO {
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private Integer walletsChecked;
+    private Integer missingTokenAccounts;
+    private Integer inFlightWallets;
+    private Integer driftedWallets;
+    private Integer repairedWallets;
+    private Integer changedDuringRepair;  // Drifted but left alone: the balance changed after it was read
+    private Double totalDrift;
+    private List<WalletDrift> drifts;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WalletDrift {
+        private Long userId;
+        private String walletAddress;
+        private Double onChainBalance;
+        private Double userBalance;
+        private Double walletBalance;
+    }
+}
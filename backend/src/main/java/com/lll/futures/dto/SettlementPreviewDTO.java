@@ -0,0 +1,36 @@
+package com.lll.futures.dto;
+
+import com.lll.futures.model.Market;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SettlementPreviewDTO {
+    private Long marketId;
+    private String marketTitle;
+    private Market.MarketStatus status;
+    private Long openOrders;
+    private Double totalOpenStake;
+    private Double vaultBalance;
+    private List<OutcomePreview> outcomes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class OutcomePreview {
+        private Market.MarketOutcome outcome;
+        private Long winners;
+        private Long losers;
+        private Long refunds;
+        private Double totalPayout;
+        private Double vaultShortfall;
+    }
+}
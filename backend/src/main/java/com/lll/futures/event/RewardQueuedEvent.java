@@ -0,0 +1,8 @@
+package com.lll.futures.event;
+
+/**
+ * Published when a reward has been queued for distribution.
+ * Delivered after the queueing transaction commits, so the reward row is visible to workers.
+ */
+public record RewardQueuedEvent(Long rewardId, Double amount) {
+}
@@ -0,0 +1,27 @@
+package com.lll.futures.event;
+
+/**
+ * Published when a transfer has been sent to the cluster.
+ * The resender signs the same transfer again with a fresh blockhash, for use once the
+ * original can no longer land (its lastValidBlockHeight has passed).
+ *
+ * lastValidBlockHeight must belong to the blockhash the transaction was actually signed with;
+ * if it belonged to any other blockhash the tracker could resend while the original is still valid.
+ */
+public record TransactionSubmittedEvent(String signature, String blockhash, long lastValidBlockHeight, Resender resender) {
+    
+    public TransactionSubmittedEvent(Submission submission, Resender resender) {
+        this(submission.signature(), submission.blockhash(), submission.lastValidBlockHeight(), resender);
+    }
+    
+    @FunctionalInterface
+    public interface Resender {
+        Submission resend() throws Exception;
+    }
+    
+    /**
+     * A sent transaction with the blockhash it was signed with and that blockhash's lastValidBlockHeight
+     */
+    public record Submission(String signature, String blockhash, long lastValidBlockHeight) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.lll.futures.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far the deposit indexer has scanned a user's token account.
+ * Signatures newer than lastSignature have not been looked at yet. A scan that runs out of
+ * budget part way keeps its place in resumeBefore/pendingNewest and continues next tick.
+ */
+@Entity
+@Table(name = "deposit_cursors", indexes = {
+    @Index(name = "idx_deposit_cursors_last_scanned_at", columnList = "last_scanned_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DepositCursor {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true)
+    private Long userId;
+    
+    @Column(length = 50)
+    private String tokenAccount;           // Null for wallets that are not valid Solana addresses
+    
+    @Column(length = 100)
+    private String lastSignature;          // Newest fully processed signature
+    
+    @Column(length = 100)
+    private String resumeBefore;           // Oldest signature seen by an unfinished scan
+    
+    @Column(length = 100)
+    private String pendingNewest;          // Newest signature seen by an unfinished scan
+    
+    @Column(nullable = false)
+    private LocalDateTime lastScannedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (lastScannedAt == null) {
+            lastScannedAt = LocalDateTime.now();
+        }
+    }
+}
@@ -9,7 +9,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_market_status_side", columnList = "market_id, status, side"),
+    @Index(name = "idx_orders_escrow_signature", columnList = "escrow_signature"),
+    @Index(name = "idx_orders_payout_signature", columnList = "payout_signature")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -54,6 +58,20 @@ public class Order {
     @Column
     private LocalDateTime settledAt;
     
+    @Column(length = 100)
+    private String escrowSignature;  // Stake transfer into the vault
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private TxConfirmationStatus escrowStatus;
+    
+    @Column(length = 100)
+    private String payoutSignature;  // Winnings or refund transfer from the vault
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private TxConfirmationStatus payoutStatus;
+    
     @Column(nullable = false)
     private LocalDateTime createdAt;
     
@@ -0,0 +1,50 @@
+package com.lll.futures.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An on-chain deposit that has been credited. The unique (signature, token account) pair
+ * is what makes crediting exactly-once.
+ */
+@Entity
+@Table(name = "processed_deposits", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_processed_deposits_signature_account", columnNames = {"signature", "token_account"})
+}, indexes = {
+    @Index(name = "idx_processed_deposits_user_id", columnList = "user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessedDeposit {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 100)
+    private String signature;
+    
+    @Column(nullable = false, length = 50)
+    private String tokenAccount;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private Double amount;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -9,7 +9,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "rewards")
+@Table(name = "rewards", indexes = {
+    @Index(name = "idx_rewards_status_next_attempt_at", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_rewards_status_user_id", columnList = "status, user_id"),
+    @Index(name = "idx_rewards_status_claimed_at", columnList = "status, claimed_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,6 +40,17 @@ public class Reward {
     @Column(length = 100)
     private String transactionSignature;  // Solana TX signature when completed
     
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private TxConfirmationStatus confirmationStatus;  // On-chain confirmation of transactionSignature
+    
+    private Long lastValidBlockHeight;  // transactionSignature cannot land once the finalized height is past this
+    
+    private LocalDateTime claimedAt;  // When a node claimed it for PROCESSING; the lease starts here
+    
+    @Column(length = 100)
+    private String claimedBy;  // Node holding the claim
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -43,7 +58,11 @@ public class Reward {
     private LocalDateTime updatedAt;
     
     @Column(length = 500)
-    private String errorMessage;  // If distribution fails
+    private String errorMessage;  // Last distribution failure
+    
+    private Integer attemptCount;  // Failed distribution attempts so far
+    
+    private LocalDateTime nextAttemptAt;  // PENDING rewards are not claimed, nor SENDING ones checked, before this
     
     @PrePersist
     protected void onCreate() {
@@ -52,6 +71,12 @@ public class Reward {
         if (status == null) {
             status = RewardStatus.PENDING;
         }
+        if (attemptCount == null) {
+            attemptCount = 0;
+        }
+        if (nextAttemptAt == null && status == RewardStatus.PENDING) {
+            nextAttemptAt = createdAt;
+        }
     }
     
     @PreUpdate
@@ -60,10 +85,12 @@ public class Reward {
     }
     
     public enum RewardStatus {
-        PENDING,      // Waiting to be processed
-        PROCESSING,   // Currently being distributed
+        PENDING,      // Waiting to be processed (or retried, from nextAttemptAt)
+        PROCESSING,   // Claimed by a node and being distributed
+        SENDING,      // Transfer signed and its signature recorded; settled from the signature's status
         COMPLETED,    // Successfully sent
-        FAILED        // Failed to distribute
+        FAILED,       // Failed to distribute (before retries existed)
+        DEAD_LETTER   // Gave up after the maximum number of attempts
     }
 }
 
@@ -0,0 +1,36 @@
+package com.lll.futures.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A named job that only one node may run at a time.
+ * The owner keeps the lease by renewing it before expiresAt; another node takes it over once it lapses.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SchedulerLease {
+    
+    @Id
+    @Column(length = 100)
+    private String name;
+    
+    @Column(nullable = false)
+    private String owner;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Null until first saved, so saving a new lease always inserts and a concurrent insert fails
+    @Version
+    private Long version;
+}
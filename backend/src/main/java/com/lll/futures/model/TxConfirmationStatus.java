@@ -0,0 +1,11 @@
+package com.lll.futures.model;
+
+/**
+ * On-chain confirmation state of a transfer recorded against an order or reward
+ */
+public enum TxConfirmationStatus {
+    SUBMITTED,   // Sent, waiting for confirmation
+    CONFIRMED,   // Confirmed by the cluster without error
+    FAILED,      // Landed with an error
+    EXPIRED      // Blockhash expired and resends were exhausted
+}
@@ -26,8 +26,10 @@ public class UserWallet {
     @Column(nullable = false, length = 50)
     private String publicKey;              // Solana public key (Base58 encoded)
     
-    @Column(nullable = false)
-    private String encryptedPrivateKey;     // Encrypted private key (never expose!)
+    @Column(unique = true)
+    private Integer derivationIndex;        // HD wallets: index under m/44'/501'/index'/0' (key is derived, not stored)
+    
+    private String encryptedPrivateKey;     // Encrypted private key (never expose!); null for HD wallets once purged
     
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
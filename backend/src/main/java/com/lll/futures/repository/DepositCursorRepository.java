@@ -0,0 +1,30 @@
+package com.lll.futures.repository;
+
+import com.lll.futures.model.DepositCursor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DepositCursorRepository extends JpaRepository<DepositCursor, Long> {
+    
+    Optional<DepositCursor> findByUserId(Long userId);
+    
+    // Least recently scanned first, so successive ticks round-robin over all accounts
+    List<DepositCursor> findAllByOrderByLastScannedAtAsc(Pageable pageable);
+    
+    /**
+     * Move a cursor to the back of the scan order without touching its position, so an account
+     * whose scans keep failing does not take the head of every tick
+     */
+    @Modifying
+    @Query("UPDATE DepositCursor c SET c.lastScannedAt = :now WHERE c.id = :id")
+    int touchLastScannedAt(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
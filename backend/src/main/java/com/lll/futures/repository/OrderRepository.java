@@ -1,10 +1,17 @@
 package com.lll.futures.repository;
 
 import com.lll.futures.model.Order;
+import com.lll.futures.model.TxConfirmationStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -12,6 +19,63 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByMarketId(Long marketId);
     List<Order> findByUserIdAndStatus(Long userId, Order.OrderStatus status);
     List<Order> findByMarketIdAndStatus(Long marketId, Order.OrderStatus status);
+    Optional<Order> findByEscrowSignature(String escrowSignature);
+    Optional<Order> findByPayoutSignature(String payoutSignature);
+    
+    @Query("SELECT o.side AS side, o.status AS status, COUNT(o) AS orderCount, " +
+           "SUM(o.stakeAmount) AS totalStake, SUM(o.potentialPayout) AS totalPotentialPayout " +
+           "FROM Order o WHERE o.market.id = :marketId GROUP BY o.side, o.status")
+    List<SideStatusTotals> aggregateByMarketId(@Param("marketId") Long marketId);
+    
+    /**
+     * Users among the given ids with an escrow or payout transfer in the given confirmation state
+     */
+    @Query("SELECT DISTINCT o.user.id FROM Order o WHERE o.user.id IN :userIds " +
+           "AND (o.escrowStatus = :status OR o.payoutStatus = :status)")
+    List<Long> findUserIdsWithTransferStatus(@Param("userIds") Collection<Long> userIds,
+                                             @Param("status") TxConfirmationStatus status);
+    
+    /**
+     * Point open orders placed from a wallet at its corrected address, so their payouts go there
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.walletAddress = :newAddress WHERE o.walletAddress = :oldAddress " +
+           "AND o.status = com.lll.futures.model.Order.OrderStatus.OPEN")
+    int updateOpenOrderWalletAddress(@Param("oldAddress") String oldAddress, @Param("newAddress") String newAddress);
+    
+    /**
+     * Record the final outcome of an order's escrow transfer, which a resend may have replaced with a new signature.
+     * Only the escrow columns change, so a concurrent settlement or cancel is never overwritten.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.escrowSignature = :signature, o.escrowStatus = :confirmationStatus, " +
+           "o.updatedAt = :now WHERE o.escrowSignature = :originalSignature")
+    int recordEscrowOutcome(@Param("originalSignature") String originalSignature,
+                            @Param("signature") String signature,
+                            @Param("confirmationStatus") TxConfirmationStatus confirmationStatus,
+                            @Param("now") LocalDateTime now);
+    
+    /**
+     * Record the final outcome of an order's payout transfer; only the payout signature and status change
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.payoutSignature = :signature, o.payoutStatus = :confirmationStatus, " +
+           "o.updatedAt = :now WHERE o.payoutSignature = :originalSignature")
+    int recordPayoutOutcome(@Param("originalSignature") String originalSignature,
+                            @Param("signature") String signature,
+                            @Param("confirmationStatus") TxConfirmationStatus confirmationStatus,
+                            @Param("now") LocalDateTime now);
+    
+    /**
+     * Per (side, status) totals for a market, used by the settlement preview
+     */
+    interface SideStatusTotals {
+        Order.OrderSide getSide();
+        Order.OrderStatus getStatus();
+        Long getOrderCount();
+        Double getTotalStake();
+        Double getTotalPotentialPayout();
+    }
 }
 
 
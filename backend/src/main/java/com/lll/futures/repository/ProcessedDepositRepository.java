@@ -0,0 +1,20 @@
+package com.lll.futures.repository;
+
+import com.lll.futures.model.ProcessedDeposit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProcessedDepositRepository extends JpaRepository<ProcessedDeposit, Long> {
+    
+    boolean existsBySignatureAndTokenAccount(String signature, String tokenAccount);
+    
+    @Query("SELECT d.signature FROM ProcessedDeposit d WHERE d.tokenAccount = :tokenAccount AND d.signature IN :signatures")
+    List<String> findProcessedSignatures(@Param("tokenAccount") String tokenAccount,
+                                         @Param("signatures") Collection<String> signatures);
+}
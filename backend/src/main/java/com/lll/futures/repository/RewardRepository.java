@@ -1,9 +1,20 @@
 package com.lll.futures.repository;
 
 import com.lll.futures.model.Reward;
+import com.lll.futures.model.TxConfirmationStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,5 +30,142 @@ public interface RewardRepository extends JpaRepository<Reward, Long> {
     Optional<Reward> findByTransactionSignature(String signature);
     
     boolean existsByTransactionSignature(String signature);
+    
+    /**
+     * Lock up to a page of rewards in the given status that are due by now, skipping rows another
+     * node has locked (SELECT ... FOR UPDATE SKIP LOCKED). Lock timeout -2 is Hibernate's SKIP LOCKED.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM Reward r WHERE r.status = :status " +
+           "AND (r.nextAttemptAt <= :now OR r.nextAttemptAt IS NULL) ORDER BY r.id")
+    List<Reward> lockDueByStatus(@Param("status") Reward.RewardStatus status,
+                                 @Param("now") LocalDateTime now,
+                                 Pageable pageable);
+    
+    /**
+     * Claim one reward for a node if it is still PENDING and due; returns 1 if this call claimed it
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.status = com.lll.futures.model.Reward.RewardStatus.PROCESSING, " +
+           "r.claimedAt = :now, r.claimedBy = :claimedBy, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.status = com.lll.futures.model.Reward.RewardStatus.PENDING " +
+           "AND (r.nextAttemptAt <= :now OR r.nextAttemptAt IS NULL)")
+    int claimIfDue(@Param("id") Long id, @Param("claimedBy") String claimedBy, @Param("now") LocalDateTime now);
+    
+    /**
+     * Return PROCESSING rewards whose claim is older than the cutoff to PENDING. A PROCESSING reward
+     * has never been signed (signing moves it to SENDING), so nothing it started can land.
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.status = com.lll.futures.model.Reward.RewardStatus.PENDING, " +
+           "r.claimedAt = NULL, r.claimedBy = NULL, r.updatedAt = :now " +
+           "WHERE r.status = com.lll.futures.model.Reward.RewardStatus.PROCESSING " +
+           "AND r.claimedAt < :cutoff")
+    int releaseExpiredClaims(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+    
+    /**
+     * Record the signed transfer of a reward before it is sent: a PROCESSING reward still claimed by
+     * the node (claim newer than the lease cutoff) becomes SENDING; returns 1 if it did
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.status = com.lll.futures.model.Reward.RewardStatus.SENDING, " +
+           "r.transactionSignature = :signature, r.lastValidBlockHeight = :lastValidBlockHeight, " +
+           "r.confirmationStatus = NULL, r.nextAttemptAt = :nextAttemptAt, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.status = com.lll.futures.model.Reward.RewardStatus.PROCESSING " +
+           "AND r.claimedBy = :claimedBy AND r.claimedAt > :leaseCutoff")
+    int markSending(@Param("id") Long id,
+                    @Param("claimedBy") String claimedBy,
+                    @Param("leaseCutoff") LocalDateTime leaseCutoff,
+                    @Param("signature") String signature,
+                    @Param("lastValidBlockHeight") Long lastValidBlockHeight,
+                    @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                    @Param("now") LocalDateTime now);
+    
+    /**
+     * Complete a SENDING reward whose transfer landed; returns 1 if it was still SENDING with that signature
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.status = com.lll.futures.model.Reward.RewardStatus.COMPLETED, " +
+           "r.confirmationStatus = :confirmationStatus, r.claimedAt = NULL, r.claimedBy = NULL, " +
+           "r.nextAttemptAt = NULL, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.status = com.lll.futures.model.Reward.RewardStatus.SENDING " +
+           "AND r.transactionSignature = :signature")
+    int completeSending(@Param("id") Long id,
+                        @Param("signature") String signature,
+                        @Param("confirmationStatus") TxConfirmationStatus confirmationStatus,
+                        @Param("now") LocalDateTime now);
+    
+    /**
+     * Check a SENDING reward's signature again later, keeping the previous error if none is given
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.nextAttemptAt = :nextAttemptAt, " +
+           "r.errorMessage = COALESCE(:errorMessage, r.errorMessage), r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.status = com.lll.futures.model.Reward.RewardStatus.SENDING " +
+           "AND r.transactionSignature = :signature")
+    int deferSending(@Param("id") Long id,
+                     @Param("signature") String signature,
+                     @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                     @Param("errorMessage") String errorMessage,
+                     @Param("now") LocalDateTime now);
+    
+    /**
+     * Give up on a SENDING reward's transfer once it can no longer land: back to PENDING (or DEAD_LETTER)
+     * without its signature. Returns 1 if it was still SENDING with that signature.
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.status = :status, r.transactionSignature = NULL, r.lastValidBlockHeight = NULL, " +
+           "r.confirmationStatus = NULL, r.claimedAt = NULL, r.claimedBy = NULL, r.attemptCount = :attemptCount, " +
+           "r.nextAttemptAt = :nextAttemptAt, r.errorMessage = :errorMessage, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.status = com.lll.futures.model.Reward.RewardStatus.SENDING " +
+           "AND r.transactionSignature = :signature")
+    int abandonSending(@Param("id") Long id,
+                       @Param("signature") String signature,
+                       @Param("status") Reward.RewardStatus status,
+                       @Param("attemptCount") Integer attemptCount,
+                       @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                       @Param("errorMessage") String errorMessage,
+                       @Param("now") LocalDateTime now);
+    
+    /**
+     * Record the final outcome of a reward's transfer, which a resend may have replaced with a new signature.
+     * Only the signature and confirmation change (and a SENDING reward is made due, so it is settled on the
+     * next check), so a concurrent status change is never overwritten.
+     */
+    @Modifying
+    @Query("UPDATE Reward r SET r.transactionSignature = :signature, r.confirmationStatus = :confirmationStatus, " +
+           "r.nextAttemptAt = CASE WHEN r.status = com.lll.futures.model.Reward.RewardStatus.SENDING " +
+           "THEN :now ELSE r.nextAttemptAt END, " +
+           "r.updatedAt = :now WHERE r.transactionSignature = :originalSignature")
+    int recordTransferOutcome(@Param("originalSignature") String originalSignature,
+                              @Param("signature") String signature,
+                              @Param("confirmationStatus") TxConfirmationStatus confirmationStatus,
+                              @Param("now") LocalDateTime now);
+    
+    @Query("SELECT COUNT(r) AS rewardCount, COALESCE(SUM(r.amount), 0.0) AS totalAmount " +
+           "FROM Reward r WHERE r.status IN :statuses")
+    RewardTotals totalsByStatusIn(@Param("statuses") Collection<Reward.RewardStatus> statuses);
+    
+    @Query("SELECT COUNT(r) AS rewardCount, COALESCE(SUM(r.amount), 0.0) AS totalAmount " +
+           "FROM Reward r WHERE r.status IN :statuses AND r.userId = :userId")
+    RewardTotals totalsByStatusInAndUserId(@Param("statuses") Collection<Reward.RewardStatus> statuses,
+                                           @Param("userId") Long userId);
+    
+    /**
+     * Users among the given ids with a reward in one of the statuses or with a transfer in the given confirmation state
+     */
+    @Query("SELECT DISTINCT r.userId FROM Reward r WHERE r.userId IN :userIds " +
+           "AND (r.status IN :statuses OR r.confirmationStatus = :confirmationStatus)")
+    List<Long> findUserIdsWithRewardsIn(@Param("userIds") Collection<Long> userIds,
+                                        @Param("statuses") Collection<Reward.RewardStatus> statuses,
+                                        @Param("confirmationStatus") TxConfirmationStatus confirmationStatus);
+    
+    /**
+     * Count and amount of a set of rewards
+     */
+    interface RewardTotals {
+        Long getRewardCount();
+        Double getTotalAmount();
+    }
 }
-
@@ -1,9 +1,15 @@
 package com.lll.futures.repository;
 
 import com.lll.futures.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,6 +20,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByWalletAddress(String walletAddress);
+    
+    @Query("SELECT u FROM User u WHERE u.walletAddress IS NOT NULL " +
+           "AND NOT EXISTS (SELECT c FROM DepositCursor c WHERE c.userId = u.id) ORDER BY u.id")
+    List<User> findUsersWithoutDepositCursor(Pageable pageable);
+    
+    /**
+     * Set a user's token balance only if it still holds the value it was read with; returns 1 if it did
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.tokenBalance = :balance, u.updatedAt = :now " +
+           "WHERE u.id = :id AND u.tokenBalance = :expected")
+    int compareAndSetTokenBalance(@Param("id") Long id,
+                                  @Param("expected") Double expected,
+                                  @Param("balance") Double balance,
+                                  @Param("now") LocalDateTime now);
 }
 
 
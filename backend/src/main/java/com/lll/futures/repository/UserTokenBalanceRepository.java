@@ -2,12 +2,30 @@ package com.lll.futures.repository;
 
 import com.lll.futures.model.UserTokenBalance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserTokenBalanceRepository extends JpaRepository<UserTokenBalance, Long> {
     Optional<UserTokenBalance> findByWalletAddress(String walletAddress);
     boolean existsByWalletAddress(String walletAddress);
+    List<UserTokenBalance> findByWalletAddressIn(Collection<String> walletAddresses);
+    
+    /**
+     * Set a wallet's LLL balance only if it still holds the value it was read with; returns 1 if it did
+     */
+    @Modifying
+    @Query("UPDATE UserTokenBalance b SET b.lllBalance = :balance, b.lastUpdated = :now " +
+           "WHERE b.id = :id AND b.lllBalance = :expected")
+    int compareAndSetLllBalance(@Param("id") Long id,
+                                @Param("expected") Double expected,
+                                @Param("balance") Double balance,
+                                @Param("now") LocalDateTime now);
 }
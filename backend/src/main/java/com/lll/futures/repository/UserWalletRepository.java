@@ -1,9 +1,14 @@
 package com.lll.futures.repository;
 
 import com.lll.futures.model.UserWallet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,5 +21,26 @@ public interface UserWalletRepository extends JpaRepository<UserWallet, Long> {
     boolean existsByUserId(Long userId);
     
     boolean existsByPublicKey(String publicKey);
+    
+    @Query("SELECT w FROM UserWallet w WHERE w.id > :afterId " +
+           "AND w.encryptedPrivateKey NOT LIKE 'v2:%' ORDER BY w.id")
+    List<UserWallet> findLegacyEncryptedAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Replace a wallet's encrypted key, but only if it still holds the ciphertext it was read with
+     * @return 1 if the key was replaced, 0 if it changed in the meantime
+     */
+    @Modifying
+    @Query("UPDATE UserWallet w SET w.encryptedPrivateKey = :encrypted " +
+           "WHERE w.id = :id AND w.encryptedPrivateKey = :legacy")
+    int replaceEncryptedPrivateKey(@Param("id") Long id,
+                                   @Param("legacy") String legacy,
+                                   @Param("encrypted") String encrypted);
+    
+    List<UserWallet> findByDerivationIndexIsNullAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
+    // Derived wallets that still keep the stored key they were migrated from
+    List<UserWallet> findByDerivationIndexIsNotNullAndEncryptedPrivateKeyIsNotNullAndIdGreaterThanOrderByIdAsc(
+        Long afterId, Pageable pageable);
 }
 
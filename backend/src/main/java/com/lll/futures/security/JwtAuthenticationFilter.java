@@ -21,6 +21,11 @@ import java.util.List;
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
+    private static final List<SimpleGrantedAuthority> USER_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    private static final List<SimpleGrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_USER"));
+    
     private final JwtUtil jwtUtil;
     
     @Override
@@ -37,30 +42,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         try {
             final String jwt = authHeader.substring(7);
-            final String username = jwtUtil.extractUsername(jwt);
-            final Long userId = jwtUtil.extractUserId(jwt);
-            final Boolean isAdmin = jwtUtil.extractIsAdmin(jwt);
             
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtUtil.validateToken(jwt, username)) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Verifies the signature and expiry and reads the claims in one parse
+                JwtPrincipal principal = jwtUtil.parseToken(jwt);
+                
+                if (principal.username() != null) {
                     // Create authorities based on admin status
-                    List<SimpleGrantedAuthority> authorities = isAdmin != null && isAdmin
-                            ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("ROLE_USER"))
-                            : List.of(new SimpleGrantedAuthority("ROLE_USER"));
+                    List<SimpleGrantedAuthority> authorities = principal.admin()
+                            ? ADMIN_AUTHORITIES
+                            : USER_AUTHORITIES;
                     
-                    // Create authentication token with username as principal
-                    // Store userId as credentials for easy access
+                    // The principal carries username, userId and admin flag; getName() is the username
                     UsernamePasswordAuthenticationToken authToken = 
                             new UsernamePasswordAuthenticationToken(
-                                    username,
-                                    userId,
+                                    principal,
+                                    null,
                                     authorities
                             );
                     
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                     
-                    log.debug("Authenticated user: {} (ID: {}) with roles: {}", username, userId, authorities);
+                    log.debug("Authenticated user: {} (ID: {}) with roles: {}", principal.username(), principal.userId(), authorities);
                 }
             }
         } catch (Exception e) {
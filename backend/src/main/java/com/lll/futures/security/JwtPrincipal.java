@@ -0,0 +1,15 @@
+package com.lll.futures.security;
+
+import java.security.Principal;
+
+/**
+ * The authenticated user behind a verified JWT, as set on the security context.
+ * Authentication.getName() still returns the username.
+ */
+public record JwtPrincipal(String username, Long userId, boolean admin) implements Principal {
+    
+    @Override
+    public String getName() {
+        return username;
+    }
+}
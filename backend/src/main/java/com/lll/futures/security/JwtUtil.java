@@ -1,6 +1,7 @@
 package com.lll.futures.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,16 +13,27 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies JWTs. The signing key and the (immutable, thread-safe) parser are built
+ * once, so verifying a token is a single HMAC check and parse.
+ */
 @Component
 public class JwtUtil {
     
-    @Value("${jwt.secret:lll-futures-secret-key-change-in-production-must-be-at-least-256-bits}")
-    private String secret;
+    private final Long expiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
     
-    @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
-    private Long expiration;
+    public JwtUtil(@Value("${jwt.secret:lll-futures-secret-key-change-in-production-must-be-at-least-256-bits}") String secret,
+                   @Value("${jwt.expiration:86400000}") Long expiration) { // 24 hours in milliseconds
+        this.expiration = expiration;
+        this.signingKey = signingKey(secret);
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
     
-    private SecretKey getSigningKey() {
+    private static SecretKey signingKey(String secret) {
         byte[] keyBytes = secret.getBytes();
         // Ensure key is at least 256 bits (32 bytes)
         if (keyBytes.length < 32) {
@@ -45,10 +57,22 @@ public class JwtUtil {
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
+    /**
+     * Verify a token and read its principal in one parse
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, badly signed or expired
+     */
+    public JwtPrincipal parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        return new JwtPrincipal(
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class)));
+    }
+    
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -73,24 +97,16 @@ public class JwtUtil {
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-    
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseSignedClaims(token).getPayload();
     }
     
     public Boolean validateToken(String token, String username) {
         try {
+            // The parser rejects expired tokens
             final String tokenUsername = extractUsername(token);
-            return (tokenUsername.equals(username) && !isTokenExpired(token));
+            return tokenUsername.equals(username);
         } catch (Exception e) {
             return false;
         }
     }
 }
-
@@ -0,0 +1,239 @@
+package com.lll.futures.service;
+
+import com.lll.futures.dto.ReconciliationReportDTO;
+import com.lll.futures.model.Reward;
+import com.lll.futures.model.TxConfirmationStatus;
+import com.lll.futures.model.User;
+import com.lll.futures.model.UserTokenBalance;
+import com.lll.futures.repository.OrderRepository;
+import com.lll.futures.repository.RewardRepository;
+import com.lll.futures.repository.UserRepository;
+import com.lll.futures.repository.UserTokenBalanceRepository;
+import com.lll.futures.service.solana.RpcPriority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reconciles in-app balances against the chain for all users.
+ * Token accounts are derived locally and fetched 100 at a time with getMultipleAccounts.
+ *
+ * Users without an associated token account are only counted: transfers can land in another
+ * token account and in-app balances include off-chain credits, so a missing account says
+ * nothing about the balance. Users with an escrow, payout or reward transfer still in flight
+ * are skipped too, since their on-chain balance does not reflect it yet.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceReconciliationService {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_REPORTED_DRIFTS = 100;
+
+    private final UserRepository userRepository;
+    private final UserTokenBalanceRepository userTokenBalanceRepository;
+    private final OrderRepository orderRepository;
+    private final RewardRepository rewardRepository;
+    private final SolanaService solanaService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reconciliation.repair:false}")
+    private boolean repairByDefault;
+
+    @Value("${app.reconciliation.tolerance:0.01}")
+    private double tolerance;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Scheduled reconciliation run
+     */
+    @Scheduled(fixedDelayString = "${app.reconciliation.interval-ms:3600000}",
+               initialDelayString = "${app.reconciliation.initial-delay-ms:300000}")
+    public void scheduledReconciliation() {
+        if (!enabled || !solanaService.isRealIntegration()) {
+            return;
+        }
+        try {
+            reconcileAll(repairByDefault);
+        } catch (Exception e) {
+            log.error("Balance reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compare every user's on-chain token balance with User.tokenBalance and UserTokenBalance
+     * @param repair When true, drifted balances are overwritten with the on-chain value, unless
+     *               they changed after being read (e.g. a payout or deposit credited meanwhile)
+     */
+    @SuppressWarnings("try")
+    public ReconciliationReportDTO reconcileAll(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Balance reconciliation is already running");
+        }
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        int checked = 0;
+        int missing = 0;
+        int inFlight = 0;
+        int repaired = 0;
+        int changed = 0;
+        double totalDrift = 0.0;
+        List<ReconciliationReportDTO.WalletDrift> drifts = new ArrayList<>();
+        int driftCount = 0;
+
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            Page<User> page = userRepository.findAll(PageRequest.of(0, PAGE_SIZE, Sort.by("id")));
+            while (true) {
+                // Derive each user's token account locally
+                Map<String, User> usersByTokenAccount = new LinkedHashMap<>();
+                for (User user : page.getContent()) {
+                    if (user.getWalletAddress() == null) {
+                        continue;
+                    }
+                    try {
+                        usersByTokenAccount.put(solanaService.deriveTokenAccountAddress(user.getWalletAddress()), user);
+                    } catch (IllegalArgumentException e) {
+                        // Placeholder addresses (e.g. demo wallets) have no on-chain account
+                        log.debug("Skipping user {} with non-Solana wallet {}", user.getId(), user.getWalletAddress());
+                    }
+                }
+
+                if (!usersByTokenAccount.isEmpty()) {
+                    Map<String, Long> amounts = solanaService.getTokenAccountAmounts(new ArrayList<>(usersByTokenAccount.keySet()));
+                    Set<Long> usersInFlight = usersWithTransfersInFlight(usersByTokenAccount.values());
+                    Map<String, UserTokenBalance> walletBalances = userTokenBalanceRepository
+                        .findByWalletAddressIn(usersByTokenAccount.values().stream().map(User::getWalletAddress).toList())
+                        .stream()
+                        .collect(Collectors.toMap(UserTokenBalance::getWalletAddress, Function.identity()));
+
+                    for (Map.Entry<String, User> entry : usersByTokenAccount.entrySet()) {
+                        User user = entry.getValue();
+                        Long rawAmount = amounts.get(entry.getKey());
+                        checked++;
+                        if (rawAmount == null) {
+                            missing++;
+                            continue;
+                        }
+                        if (usersInFlight.contains(user.getId())) {
+                            inFlight++;
+                            continue;
+                        }
+
+                        double onChain = solanaService.toTokenAmount(rawAmount);
+                        UserTokenBalance walletBalance = walletBalances.get(user.getWalletAddress());
+                        boolean userDrift = Math.abs(onChain - user.getTokenBalance()) > tolerance;
+                        boolean walletDrift = walletBalance != null && Math.abs(onChain - walletBalance.getLllBalance()) > tolerance;
+
+                        if (!userDrift && !walletDrift) {
+                            continue;
+                        }
+
+                        driftCount++;
+                        totalDrift += onChain - user.getTokenBalance();
+                        if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                            drifts.add(ReconciliationReportDTO.WalletDrift.builder()
+                                .userId(user.getId())
+                                .walletAddress(user.getWalletAddress())
+                                .onChainBalance(onChain)
+                                .userBalance(user.getTokenBalance())
+                                .walletBalance(walletBalance != null ? walletBalance.getLllBalance() : null)
+                                .build());
+                        }
+
+                        if (repair) {
+                            if (repairBalances(user, walletBalance, onChain)) {
+                                repaired++;
+                            } else {
+                                changed++;
+                            }
+                        }
+                    }
+                }
+
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = userRepository.findAll(page.nextPageable());
+            }
+        } finally {
+            running.set(false);
+        }
+
+        ReconciliationReportDTO report = ReconciliationReportDTO.builder()
+            .startedAt(startedAt)
+            .durationMs(System.currentTimeMillis() - start)
+            .walletsChecked(checked)
+            .missingTokenAccounts(missing)
+            .inFlightWallets(inFlight)
+            .driftedWallets(driftCount)
+            .repairedWallets(repaired)
+            .changedDuringRepair(changed)
+            .totalDrift(totalDrift)
+            .drifts(drifts)
+            .build();
+
+        log.info("Balance reconciliation: {} wallets checked, {} drifted (net {} LLL), {} repaired, {} changed during repair, {} without token account, {} with transfers in flight in {} ms",
+            checked, driftCount, totalDrift, repaired, changed, missing, inFlight, report.getDurationMs());
+        return report;
+    }
+
+    /**
+     * Overwrite a user's balances with the on-chain value, but only where they still hold what was
+     * read before the RPC round trips; a credit or debit landing meanwhile must not be lost
+     * @return false (and nothing written) if either balance changed
+     */
+    private boolean repairBalances(User user, UserTokenBalance walletBalance, double onChain) {
+        LocalDateTime now = LocalDateTime.now();
+        Boolean repaired = transactionTemplate.execute(status -> {
+            boolean written = userRepository.compareAndSetTokenBalance(user.getId(), user.getTokenBalance(), onChain, now) > 0
+                && (walletBalance == null || userTokenBalanceRepository.compareAndSetLllBalance(
+                    walletBalance.getId(), walletBalance.getLllBalance(), onChain, now) > 0);
+            if (!written) {
+                status.setRollbackOnly();
+            }
+            return written;
+        });
+        if (!Boolean.TRUE.equals(repaired)) {
+            log.info("Balance of user {} changed during reconciliation, not repairing it", user.getId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Users with an escrow or payout awaiting confirmation, or a reward being paid or awaiting confirmation
+     */
+    private Set<Long> usersWithTransfersInFlight(Iterable<User> users) {
+        List<Long> userIds = new ArrayList<>();
+        users.forEach(user -> userIds.add(user.getId()));
+
+        Set<Long> inFlight = new HashSet<>(orderRepository.findUserIdsWithTransferStatus(userIds, TxConfirmationStatus.SUBMITTED));
+        inFlight.addAll(rewardRepository.findUserIdsWithRewardsIn(userIds,
+            EnumSet.of(Reward.RewardStatus.PROCESSING, Reward.RewardStatus.SENDING), TxConfirmationStatus.SUBMITTED));
+        return inFlight;
+    }
+}
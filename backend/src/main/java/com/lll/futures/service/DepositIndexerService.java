@@ -0,0 +1,372 @@
+package com.lll.futures.service;
+
+import com.lll.futures.model.DepositCursor;
+import com.lll.futures.model.ProcessedDeposit;
+import com.lll.futures.model.Transaction;
+import com.lll.futures.model.User;
+import com.lll.futures.repository.DepositCursorRepository;
+import com.lll.futures.repository.ProcessedDepositRepository;
+import com.lll.futures.repository.TransactionRepository;
+import com.lll.futures.repository.UserRepository;
+import com.lll.futures.service.solana.RpcPriority;
+import com.lll.futures.service.solana.SignatureInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Credits on-chain deposits by scanning each user's token account for new signatures.
+ *
+ * Every account has a cursor (the newest signature already processed). A scan pages
+ * getSignaturesForAddress backwards from the newest signature until it reaches the cursor,
+ * fetches only the new transactions, and credits positive changes to the account that did not
+ * come from the vault. Each tick scans the least recently scanned accounts within a fixed
+ * signature budget; an account whose backlog exceeds the budget resumes where it stopped.
+ * Credits are keyed by (signature, token account), so a signature is never credited twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DepositIndexerService {
+    
+    // getTransaction calls per batched request
+    private static final int TRANSACTION_CHUNK_SIZE = 100;
+    
+    private final DepositCursorRepository depositCursorRepository;
+    private final ProcessedDepositRepository processedDepositRepository;
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserService userService;
+    private final SolanaService solanaService;
+    private final VaultService vaultService;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${app.deposits.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.deposits.accounts-per-tick:200}")
+    private int accountsPerTick;
+    
+    @Value("${app.deposits.signatures-per-tick:500}")
+    private int signaturesPerTick;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // Users whose account is being scanned, so the tick and checkDeposit never scan the same cursor at once
+    private final Set<Long> scanning = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Scheduled scan of the least recently scanned accounts
+     */
+    @Scheduled(fixedDelayString = "${app.deposits.scan-interval-ms:15000}",
+               initialDelayString = "${app.deposits.initial-delay-ms:60000}")
+    @SuppressWarnings("try")
+    public void scheduledScan() {
+        if (!enabled || !solanaService.isRealIntegration() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            int budget = signaturesPerTick;
+            budget -= openCursors(userRepository.findUsersWithoutDepositCursor(PageRequest.of(0, accountsPerTick)));
+            
+            List<DepositCursor> cursors = depositCursorRepository.findAllByOrderByLastScannedAtAsc(
+                PageRequest.of(0, accountsPerTick));
+            int credited = 0;
+            for (DepositCursor cursor : cursors) {
+                if (budget <= 0) {
+                    break;
+                }
+                if (!scanning.add(cursor.getUserId())) {
+                    continue;
+                }
+                try {
+                    ScanResult result = scan(cursor, budget);
+                    budget -= Math.max(1, result.signaturesFetched());
+                    credited += result.deposits().size();
+                } catch (Exception e) {
+                    budget--;
+                    log.warn("Deposit scan failed for user {}: {}", cursor.getUserId(), e.getMessage());
+                    deferFailedScan(cursor);
+                } finally {
+                    scanning.remove(cursor.getUserId());
+                }
+            }
+            
+            if (credited > 0) {
+                log.info("Deposit indexer credited {} deposits", credited);
+            }
+        } catch (Exception e) {
+            log.error("Deposit indexing failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    /**
+     * Scan one user's token account now
+     * @return Deposits credited by this scan (empty when nothing new arrived)
+     */
+    @SuppressWarnings("try")
+    public List<ProcessedDeposit> scanUser(Long userId) {
+        if (!solanaService.isRealIntegration()) {
+            return List.of();
+        }
+        if (!scanning.add(userId)) {
+            throw new RuntimeException("A deposit scan is already running for this user");
+        }
+        
+        try (RpcPriority.Scope ignored = RpcPriority.USER_TRANSFER.enter()) {
+            DepositCursor cursor = depositCursorRepository.findByUserId(userId).orElse(null);
+            if (cursor == null) {
+                User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+                openCursors(List.of(user));
+                return List.of();
+            }
+            return scan(cursor, signaturesPerTick).deposits();
+        } finally {
+            scanning.remove(userId);
+        }
+    }
+    
+    /**
+     * Push a cursor whose scan failed behind the accounts that have not been scanned since, keeping
+     * its signature position so the next attempt resumes from the same place
+     */
+    private void deferFailedScan(DepositCursor cursor) {
+        if (cursor.getId() == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                depositCursorRepository.touchLastScannedAt(cursor.getId(), LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.warn("Could not defer deposit cursor for user {}: {}", cursor.getUserId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Create cursors positioned at each account's newest signature, so history that predates
+     * indexing is not credited again
+     * @return Users attempted, each costing at most one RPC call
+     */
+    private int openCursors(List<User> users) {
+        int calls = 0;
+        for (User user : users) {
+            DepositCursor cursor = DepositCursor.builder().userId(user.getId()).build();
+            calls++;
+            try {
+                reset(cursor, user.getWalletAddress());
+                depositCursorRepository.save(cursor);
+            } catch (DataIntegrityViolationException e) {
+                // Opened concurrently by checkDeposit
+                log.debug("Deposit cursor for user {} already exists", user.getId());
+            } catch (RuntimeException e) {
+                // Retried on the next tick
+                log.warn("Could not open deposit cursor for user {}: {}", user.getId(), e.getMessage());
+            }
+        }
+        return calls;
+    }
+    
+    /**
+     * Point a cursor at a wallet's token account, starting from its newest signature
+     * @return RPC calls made
+     */
+    private int reset(DepositCursor cursor, String walletAddress) {
+        cursor.setTokenAccount(tokenAccountOf(walletAddress));
+        cursor.setLastSignature(null);
+        cursor.setResumeBefore(null);
+        cursor.setPendingNewest(null);
+        cursor.setLastScannedAt(LocalDateTime.now());
+        if (cursor.getTokenAccount() == null) {
+            return 0;
+        }
+        
+        List<SignatureInfo> newest = solanaService.getSignaturesForAddress(cursor.getTokenAccount(), null, null, 1);
+        if (!newest.isEmpty()) {
+            cursor.setLastSignature(newest.get(0).signature());
+        }
+        return 1;
+    }
+    
+    private ScanResult scan(DepositCursor cursor, int budget) {
+        User user = userRepository.findById(cursor.getUserId()).orElse(null);
+        if (user == null) {
+            depositCursorRepository.delete(cursor);
+            return new ScanResult(0, List.of());
+        }
+        
+        // The user switched wallets (e.g. a demo wallet was replaced by a real one)
+        String tokenAccount = tokenAccountOf(user.getWalletAddress());
+        if (tokenAccount == null ? cursor.getTokenAccount() != null : !tokenAccount.equals(cursor.getTokenAccount())) {
+            int calls = reset(cursor, user.getWalletAddress());
+            depositCursorRepository.save(cursor);
+            return new ScanResult(calls, List.of());
+        }
+        if (tokenAccount == null) {
+            cursor.setLastScannedAt(LocalDateTime.now());
+            depositCursorRepository.save(cursor);
+            return new ScanResult(0, List.of());
+        }
+        
+        // Page backwards from the newest signature (or where the last scan stopped) to the cursor
+        String before = cursor.getResumeBefore();
+        String newest = cursor.getPendingNewest();
+        List<SignatureInfo> fetched = new ArrayList<>();
+        boolean reachedCursor = false;
+        while (fetched.size() < budget) {
+            int limit = Math.min(SolanaService.MAX_SIGNATURES_PER_PAGE, budget - fetched.size());
+            List<SignatureInfo> page = solanaService.getSignaturesForAddress(tokenAccount, before,
+                cursor.getLastSignature(), limit);
+            if (newest == null && !page.isEmpty()) {
+                newest = page.get(0).signature();
+            }
+            fetched.addAll(page);
+            if (page.size() < limit) {
+                reachedCursor = true;
+                break;
+            }
+            before = page.get(page.size() - 1).signature();
+        }
+        
+        List<ProcessedDeposit> deposits = credit(user, tokenAccount, fetched);
+        
+        if (reachedCursor) {
+            if (newest != null) {
+                cursor.setLastSignature(newest);
+            }
+            cursor.setResumeBefore(null);
+            cursor.setPendingNewest(null);
+        } else {
+            cursor.setResumeBefore(before);
+            cursor.setPendingNewest(newest);
+        }
+        cursor.setLastScannedAt(LocalDateTime.now());
+        depositCursorRepository.save(cursor);
+        
+        return new ScanResult(fetched.size(), deposits);
+    }
+    
+    private List<ProcessedDeposit> credit(User user, String tokenAccount, List<SignatureInfo> signatures) {
+        List<String> candidates = new ArrayList<>();
+        for (SignatureInfo info : signatures) {
+            if (!info.failed()) {
+                candidates.add(info.signature());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        
+        Set<String> processed = new HashSet<>(processedDepositRepository.findProcessedSignatures(tokenAccount, candidates));
+        candidates.removeIf(processed::contains);
+        
+        // Payouts can come from any vault shard
+        List<String> vaultTokenAccounts = new ArrayList<>();
+        for (VaultShard shard : vaultService.getShards()) {
+            String vaultTokenAccount = tokenAccountOf(shard.getPublicKey());
+            if (vaultTokenAccount != null) {
+                vaultTokenAccounts.add(vaultTokenAccount);
+            }
+        }
+        List<ProcessedDeposit> deposits = new ArrayList<>();
+        // Oldest first, so the transaction history reads in order
+        for (int end = candidates.size(); end > 0; end -= TRANSACTION_CHUNK_SIZE) {
+            List<String> chunk = new ArrayList<>(candidates.subList(Math.max(0, end - TRANSACTION_CHUNK_SIZE), end));
+            List<Map<String, Long>> deltas = solanaService.getTokenBalanceDeltas(chunk);
+            for (int i = chunk.size() - 1; i >= 0; i--) {
+                String signature = chunk.get(i);
+                Map<String, Long> changes = deltas.get(i);
+                if (changes == null) {
+                    // Listed as finalized but not served yet; fail the scan so the cursor does not move past it
+                    throw new RuntimeException("Transaction " + signature + " is not available yet");
+                }
+                
+                long received = changes.getOrDefault(tokenAccount, 0L);
+                boolean fromVault = vaultTokenAccounts.stream()
+                    .anyMatch(vaultTokenAccount -> changes.getOrDefault(vaultTokenAccount, 0L) < 0);
+                if (received <= 0 || fromVault) {
+                    // Outgoing transfers, and payouts the app already credited in-app
+                    continue;
+                }
+                
+                ProcessedDeposit deposit = record(user.getId(), tokenAccount, signature, received);
+                if (deposit != null) {
+                    deposits.add(deposit);
+                }
+            }
+        }
+        return deposits;
+    }
+    
+    /**
+     * Credit one deposit and remember its signature in the same transaction
+     * @return null if the signature was credited concurrently
+     */
+    private ProcessedDeposit record(Long userId, String tokenAccount, String signature, long baseUnits) {
+        double amount = solanaService.toTokenAmount(baseUnits);
+        try {
+            return transactionTemplate.execute(status -> {
+                if (processedDepositRepository.existsBySignatureAndTokenAccount(signature, tokenAccount)) {
+                    return null;
+                }
+                ProcessedDeposit deposit = processedDepositRepository.saveAndFlush(ProcessedDeposit.builder()
+                    .signature(signature)
+                    .tokenAccount(tokenAccount)
+                    .userId(userId)
+                    .amount(amount)
+                    .build());
+                
+                User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+                Double balanceBefore = user.getTokenBalance();
+                userService.updateBalance(userId, amount);
+                
+                transactionRepository.save(Transaction.builder()
+                    .user(user)
+                    .type(Transaction.TransactionType.DEPOSIT)
+                    .amount(amount)
+                    .balanceBefore(balanceBefore)
+                    .balanceAfter(balanceBefore + amount)
+                    .description("On-chain deposit " + signature)
+                    .build());
+                
+                log.info("Credited deposit of {} LLL to user {} ({})", amount, userId, signature);
+                return deposit;
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Deposit {} was already credited", signature);
+            return null;
+        }
+    }
+    
+    private String tokenAccountOf(String walletAddress) {
+        if (walletAddress == null || walletAddress.isEmpty()) {
+            return null;
+        }
+        try {
+            return solanaService.deriveTokenAccountAddress(walletAddress);
+        } catch (IllegalArgumentException e) {
+            // Placeholder addresses (e.g. demo wallets) have no token account
+            return null;
+        }
+    }
+    
+    private record ScanResult(int signaturesFetched, List<ProcessedDeposit> deposits) {
+    }
+}
@@ -0,0 +1,275 @@
+package com.lll.futures.service;
+
+import com.lll.futures.dto.HdWalletMigrationReportDTO;
+import com.lll.futures.model.UserWallet;
+import com.lll.futures.repository.UserRepository;
+import com.lll.futures.repository.UserWalletRepository;
+import com.lll.futures.service.solana.Base58;
+import com.lll.futures.service.solana.RpcPriority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves wallets with individually stored keys onto HD derived keys.
+ *
+ * A wallet still holding funds first has them swept to its derived address, signed with the
+ * stored key: tokens in every token account it owns for the mint, then, on a later run, its SOL.
+ * The row is left alone until a run sees the old address empty; only then is it switched to the
+ * derived public key and index. Run it until no sweeps remain.
+ *
+ * The stored key is kept after the switch, so funds that reach the old address later can still be
+ * moved. {@link #purgeLegacyKeys(int)} drops it once the old address is confirmed empty, sweeping
+ * anything that arrived there first.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HdWalletMigrationService {
+    
+    private static final int PAGE_SIZE = 100;
+    
+    private final UserWalletRepository userWalletRepository;
+    private final UserRepository userRepository;
+    private final WalletService walletService;
+    private final HdWalletService hdWalletService;
+    private final SolanaService solanaService;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    /**
+     * Migrate up to limit wallets that are not derived yet
+     */
+    @SuppressWarnings("try")
+    public HdWalletMigrationReportDTO migrate(int limit) {
+        if (!hdWalletService.isEnabled()) {
+            throw new RuntimeException("HD wallet derivation is not enabled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("HD wallet migration is already running");
+        }
+        
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        List<HdWalletMigrationReportDTO.WalletMigration> results = new ArrayList<>();
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            long afterId = 0;
+            while (results.size() < limit) {
+                List<UserWallet> page = userWalletRepository.findByDerivationIndexIsNullAndIdGreaterThanOrderByIdAsc(
+                    afterId, PageRequest.of(0, Math.min(PAGE_SIZE, limit - results.size())));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (UserWallet wallet : page) {
+                    afterId = wallet.getId();
+                    results.add(migrateWallet(wallet));
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+        
+        HdWalletMigrationReportDTO report = HdWalletMigrationReportDTO.builder()
+            .startedAt(startedAt)
+            .durationMs(System.currentTimeMillis() - start)
+            .walletsChecked(results.size())
+            .migratedWallets(count(results, "MIGRATED"))
+            .sweepsSent(count(results, "SWEPT"))
+            .purgedKeys(0)
+            .failedWallets(count(results, "FAILED"))
+            .wallets(results)
+            .build();
+        log.info("HD wallet migration: {} checked, {} migrated, {} swept, {} failed",
+            report.getWalletsChecked(), report.getMigratedWallets(), report.getSweepsSent(), report.getFailedWallets());
+        return report;
+    }
+    
+    /**
+     * Drop the stored keys of up to limit migrated wallets whose old address is empty.
+     * Funds found at an old address are swept to the derived one instead; run it again once they land.
+     */
+    @SuppressWarnings("try")
+    public HdWalletMigrationReportDTO purgeLegacyKeys(int limit) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("HD wallet migration is already running");
+        }
+        
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        List<HdWalletMigrationReportDTO.WalletMigration> results = new ArrayList<>();
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            long afterId = 0;
+            while (results.size() < limit) {
+                List<UserWallet> page = userWalletRepository
+                    .findByDerivationIndexIsNotNullAndEncryptedPrivateKeyIsNotNullAndIdGreaterThanOrderByIdAsc(
+                        afterId, PageRequest.of(0, Math.min(PAGE_SIZE, limit - results.size())));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (UserWallet wallet : page) {
+                    afterId = wallet.getId();
+                    results.add(purgeWallet(wallet));
+                }
+            }
+        } finally {
+            running.set(false);
+        }
+        
+        HdWalletMigrationReportDTO report = HdWalletMigrationReportDTO.builder()
+            .startedAt(startedAt)
+            .durationMs(System.currentTimeMillis() - start)
+            .walletsChecked(results.size())
+            .migratedWallets(0)
+            .sweepsSent(count(results, "SWEPT"))
+            .purgedKeys(count(results, "PURGED"))
+            .failedWallets(count(results, "FAILED"))
+            .wallets(results)
+            .build();
+        log.info("Legacy wallet key purge: {} checked, {} purged, {} swept, {} failed",
+            report.getWalletsChecked(), report.getPurgedKeys(), report.getSweepsSent(), report.getFailedWallets());
+        return report;
+    }
+    
+    private HdWalletMigrationReportDTO.WalletMigration migrateWallet(UserWallet wallet) {
+        HdWalletMigrationReportDTO.WalletMigration.WalletMigrationBuilder result =
+            HdWalletMigrationReportDTO.WalletMigration.builder()
+                .userId(wallet.getUserId())
+                .oldPublicKey(wallet.getPublicKey());
+        try {
+            int index = hdWalletService.indexFor(wallet.getUserId());
+            String newPublicKey = hdWalletService.derivePublicKey(index);
+            result.newPublicKey(newPublicKey);
+            
+            if (sweep(walletService.getWalletKeypair(wallet), wallet.getPublicKey(), newPublicKey, result)) {
+                return result.status("SWEPT").build();
+            }
+            
+            switchToDerived(wallet, index, newPublicKey);
+            return result.status("MIGRATED").build();
+        
+        } catch (Exception e) {
+            log.warn("HD migration of wallet {} (user {}) failed: {}", wallet.getPublicKey(), wallet.getUserId(), e.getMessage());
+            return result.status("FAILED").error(e.getMessage()).build();
+        }
+    }
+    
+    private HdWalletMigrationReportDTO.WalletMigration purgeWallet(UserWallet wallet) {
+        HdWalletMigrationReportDTO.WalletMigration.WalletMigrationBuilder result =
+            HdWalletMigrationReportDTO.WalletMigration.builder()
+                .userId(wallet.getUserId())
+                .newPublicKey(wallet.getPublicKey());
+        try {
+            byte[] legacyKeypair = Base64.getDecoder().decode(
+                walletService.decryptPrivateKey(wallet.getEncryptedPrivateKey()));
+            if (legacyKeypair.length != 64) {
+                throw new RuntimeException("Stored keypair is " + legacyKeypair.length + " bytes, expected 64");
+            }
+            String legacyPublicKey = Base58.encode(Arrays.copyOfRange(legacyKeypair, 32, 64));
+            result.oldPublicKey(legacyPublicKey);
+            
+            if (sweep(legacyKeypair, legacyPublicKey, wallet.getPublicKey(), result)) {
+                return result.status("SWEPT").build();
+            }
+            
+            transactionTemplate.executeWithoutResult(status -> {
+                wallet.setEncryptedPrivateKey(null);
+                userWalletRepository.save(wallet);
+            });
+            log.info("Purged the stored key of migrated wallet {} (user {})", legacyPublicKey, wallet.getUserId());
+            return result.status("PURGED").build();
+        
+        } catch (Exception e) {
+            log.warn("Purging the stored key of user {} failed: {}", wallet.getUserId(), e.getMessage());
+            return result.status("FAILED").error(e.getMessage()).build();
+        }
+    }
+    
+    /**
+     * Send whatever the old address holds to the derived one: tokens in each token account first,
+     * and its SOL only once no tokens are left, since the token sweeps pay their fees in SOL
+     * @return Whether anything was sent (the wallet must be checked again once it lands)
+     */
+    private boolean sweep(byte[] keypair, String fromWallet, String toWallet,
+                          HdWalletMigrationReportDTO.WalletMigration.WalletMigrationBuilder result) {
+        Map<String, Long> tokenAccounts = tokenAccountsWithBalance(fromWallet);
+        if (!tokenAccounts.isEmpty()) {
+            long total = tokenAccounts.values().stream().mapToLong(Long::longValue).sum();
+            List<String> signatures = new ArrayList<>();
+            if (!solanaService.isRealIntegration()) {
+                signatures.add(solanaService.transferSPLTokenFromUserWallet(
+                    keypair, fromWallet, toWallet, solanaService.toTokenAmount(total)));
+            } else {
+                for (Map.Entry<String, Long> tokenAccount : tokenAccounts.entrySet()) {
+                    signatures.add(solanaService.transferSPLTokenFromTokenAccount(
+                        keypair, tokenAccount.getKey(), toWallet, tokenAccount.getValue()));
+                }
+            }
+            log.info("Swept {} LLL from {} token accounts of wallet {} to derived wallet {} - TX: {}",
+                solanaService.toTokenAmount(total), tokenAccounts.size(), fromWallet, toWallet, signatures);
+            result.sweptAmount(solanaService.toTokenAmount(total)).transactionSignature(String.join(",", signatures));
+            return true;
+        }
+        
+        // Less than one fee's worth cannot be moved and is left behind
+        long lamports = solanaService.getLamportBalance(fromWallet);
+        if (lamports > SolanaService.SIGNATURE_FEE_LAMPORTS) {
+            long amount = lamports - SolanaService.SIGNATURE_FEE_LAMPORTS;
+            String signature = solanaService.transferSol(keypair, toWallet, amount);
+            log.info("Swept {} lamports from wallet {} to derived wallet {} - TX: {}", amount, fromWallet, toWallet, signature);
+            result.sweptLamports(amount).transactionSignature(signature);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Point the wallet (and the user's address, if it was this wallet) at the derived key.
+     * The stored key stays until {@link #purgeLegacyKeys(int)} finds the old address empty.
+     */
+    private void switchToDerived(UserWallet wallet, int index, String newPublicKey) {
+        String oldPublicKey = wallet.getPublicKey();
+        transactionTemplate.executeWithoutResult(status -> {
+            wallet.setPublicKey(newPublicKey);
+            wallet.setDerivationIndex(index);
+            userWalletRepository.save(wallet);
+            
+            userRepository.findById(wallet.getUserId())
+                .filter(user -> oldPublicKey.equals(user.getWalletAddress()))
+                .ifPresent(user -> {
+                    user.setWalletAddress(newPublicKey);
+                    userRepository.save(user);
+                });
+        });
+        log.info("Migrated wallet of user {} to derived key {}", wallet.getUserId(), newPublicKey);
+    }
+    
+    /**
+     * Token accounts of the wallet that hold tokens, with their amounts in base units; throws rather
+     * than reporting none when they cannot be read
+     */
+    private Map<String, Long> tokenAccountsWithBalance(String walletAddress) {
+        Map<String, Long> funded = new LinkedHashMap<>();
+        solanaService.getOwnedTokenAccountAmounts(walletAddress).forEach((tokenAccount, amount) -> {
+            if (amount > 0) {
+                funded.put(tokenAccount, amount);
+            }
+        });
+        return funded;
+    }
+    
+    private static int count(List<HdWalletMigrationReportDTO.WalletMigration> results, String status) {
+        return (int) results.stream().filter(r -> status.equals(r.getStatus())).count();
+    }
+}
@@ -0,0 +1,163 @@
+package com.lll.futures.service;
+
+import com.lll.futures.service.solana.Base58;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Derives user wallet keypairs from one master seed (SLIP-0010, Ed25519).
+ *
+ * A user's keypair lives at m/44'/501'/index'/0', the path Solana wallets use, with the user id
+ * as the account index. Only the public key and index need storing per wallet; the private key
+ * is re-derived on demand. The master seed is configured encrypted with the wallet encryption key,
+ * and the m/44'/501' node is derived once at startup. Derived keypairs are kept in a bounded LRU.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HdWalletService {
+    
+    private static final byte[] ED25519_SEED_KEY = "ed25519 seed".getBytes(StandardCharsets.UTF_8);
+    private static final int HARDENED = 0x80000000;
+    private static final int PURPOSE = 44;
+    private static final int SOLANA_COIN_TYPE = 501;
+    
+    private final WalletCipher walletCipher;
+    
+    @Value("${app.wallet.hd.enabled:false}")
+    private boolean enabled;
+    
+    // Base64 master seed (16-64 bytes), encrypted like wallet keys
+    @Value("${app.wallet.hd.encrypted-master-seed:}")
+    private String encryptedMasterSeed;
+    
+    @Value("${app.wallet.hd.cache-size:10000}")
+    private int cacheSize;
+    
+    // m/44'/501'
+    private Node coinNode;
+    private Map<Integer, byte[]> keypairs;
+    
+    @PostConstruct
+    public void init() {
+        this.keypairs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        if (!enabled) {
+            return;
+        }
+        if (encryptedMasterSeed == null || encryptedMasterSeed.isBlank()) {
+            throw new IllegalStateException("app.wallet.hd.enabled requires app.wallet.hd.encrypted-master-seed");
+        }
+        
+        byte[] seed = Base64.getDecoder().decode(walletCipher.decrypt(encryptedMasterSeed.trim()));
+        if (seed.length < 16 || seed.length > 64) {
+            throw new IllegalStateException("HD master seed must be 16 to 64 bytes, got " + seed.length);
+        }
+        try {
+            Node master = hmac(ED25519_SEED_KEY, seed);
+            this.coinNode = master.child(PURPOSE).child(SOLANA_COIN_TYPE);
+        } finally {
+            Arrays.fill(seed, (byte) 0);
+        }
+        log.info("HD wallet derivation enabled (m/44'/501'/index'/0')");
+    }
+    
+    /**
+     * Whether new wallets are derived instead of generated and stored
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * The derivation index for a user
+     */
+    public int indexFor(Long userId) {
+        if (userId == null || userId < 0 || userId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("User id " + userId + " is outside the hardened index range");
+        }
+        return userId.intValue();
+    }
+    
+    /**
+     * The 64-byte Solana keypair (private key + public key) at m/44'/501'/index'/0'
+     */
+    public byte[] deriveKeypair(int index) {
+        if (coinNode == null) {
+            throw new IllegalStateException("HD wallet derivation is not enabled");
+        }
+        
+        synchronized (keypairs) {
+            byte[] cached = keypairs.get(index);
+            if (cached != null) {
+                return cached.clone();
+            }
+        }
+        
+        Node node = coinNode.child(index).child(0);
+        byte[] publicKey = new Ed25519PrivateKeyParameters(node.key(), 0).generatePublicKey().getEncoded();
+        byte[] keypair = new byte[64];
+        System.arraycopy(node.key(), 0, keypair, 0, 32);
+        System.arraycopy(publicKey, 0, keypair, 32, 32);
+        
+        synchronized (keypairs) {
+            keypairs.put(index, keypair);
+        }
+        return keypair.clone();
+    }
+    
+    /**
+     * The Base58 public key at m/44'/501'/index'/0'
+     */
+    public String derivePublicKey(int index) {
+        byte[] keypair = deriveKeypair(index);
+        return Base58.encode(Arrays.copyOfRange(keypair, 32, 64));
+    }
+    
+    private static Node hmac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(key, "HmacSHA512"));
+            byte[] i = mac.doFinal(data);
+            return new Node(Arrays.copyOfRange(i, 0, 32), Arrays.copyOfRange(i, 32, 64));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA512 is not available", e);
+        }
+    }
+    
+    /**
+     * An extended private key: 32-byte key and 32-byte chain code
+     */
+    private record Node(byte[] key, byte[] chainCode) {
+        
+        /**
+         * Hardened child (Ed25519 only supports hardened derivation)
+         */
+        Node child(int index) {
+            byte[] data = ByteBuffer.allocate(37)
+                .put((byte) 0)
+                .put(key)
+                .putInt(index | HARDENED)
+                .array();
+            return hmac(chainCode, data);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.lll.futures.dto.PlaceOrderRequest;
 import com.lll.futures.model.Market;
 import com.lll.futures.model.Order;
 import com.lll.futures.model.Transaction;
+import com.lll.futures.model.TxConfirmationStatus;
 import com.lll.futures.model.User;
 import com.lll.futures.model.UserTokenBalance;
 import com.lll.futures.repository.MarketRepository;
@@ -36,6 +37,8 @@ public class OrderService {
     private final SolanaService solanaService;
     private final WalletService walletService;
     private final VaultService vaultService;
+    private final VaultLedger vaultLedger;
+    private final TransactionConfirmationTracker confirmationTracker;
     
     @Transactional(readOnly = true)
     public List<OrderDTO> getAllOrders() {
@@ -118,6 +121,13 @@ public class OrderService {
                 request.getStakeAmount()
             );
             
+            vaultLedger.recordInflow(txSignature, request.getStakeAmount());
+            order.setEscrowSignature(txSignature);
+            if (confirmationTracker.isTracking(txSignature)) {
+                order.setEscrowStatus(TxConfirmationStatus.SUBMITTED);
+            }
+            orderRepository.save(order);
+            
             log.info("Transferred {} LLL from user {} to vault (escrow) - TX: {}", 
                 request.getStakeAmount(), userWalletAddress, txSignature);
         } catch (Exception e) {
@@ -165,9 +175,7 @@ public class OrderService {
         var userWallet = walletService.getUserWallet(userId)
             .orElseThrow(() -> new RuntimeException("User wallet not found for userId: " + userId));
         
-        String decryptedPrivateKey = walletService.decryptPrivateKey(userWallet.getEncryptedPrivateKey());
-        // Decode Base64 to bytes
-        return java.util.Base64.getDecoder().decode(decryptedPrivateKey);
+        return walletService.getWalletKeypair(userWallet);
     }
     
     private OrderDTO convertToDTO(Order order) {
@@ -1,31 +1,128 @@
 package com.lll.futures.service;
 
+import com.lll.futures.event.RewardQueuedEvent;
 import com.lll.futures.model.Reward;
+import com.lll.futures.model.TxConfirmationStatus;
 import com.lll.futures.model.User;
 import com.lll.futures.model.UserWallet;
 import com.lll.futures.repository.RewardRepository;
 import com.lll.futures.repository.UserRepository;
 import com.lll.futures.repository.UserWalletRepository;
+import com.lll.futures.service.solana.RpcPriority;
+import com.lll.futures.service.solana.SignatureStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Distributes queued rewards from the vault.
+ *
+ * The reward row is the source of truth. Once queueReward commits, the reward is handed to a
+ * bounded pool of workers that claim it atomically and pay it within milliseconds. When the
+ * workers' queue is full the reward is simply left in the table. The scheduled sweeper picks up
+ * anything the workers did not take: overflow, rewards queued on a node that went down, and
+ * retries that have come due. A reward is moved to SENDING with its transfer's signature before
+ * the transfer is sent; from then on it is settled from that signature's on-chain status and
+ * never simply retried.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RewardDistributionService {
     
+    // Rewards still owed: waiting (including retries), being paid, or sent and not yet settled
+    private static final Set<Reward.RewardStatus> PENDING_STATUSES =
+        EnumSet.of(Reward.RewardStatus.PENDING, Reward.RewardStatus.PROCESSING, Reward.RewardStatus.SENDING);
+    
     private final RewardRepository rewardRepository;
     private final UserRepository userRepository;
     private final UserWalletRepository userWalletRepository;
     private final UserService userService;
     private final SolanaService solanaService;
-    private final VaultService vaultService;
+    private final VaultLedger vaultLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Identifies this node in Reward.claimedBy (pid@host)
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    
+    @Value("${app.rewards.claim-batch-size:50}")
+    private int claimBatchSize;
+    
+    // A PROCESSING claim older than this is considered abandoned. A SENDING reward whose send
+    // succeeded is not checked before this either, which is longer than the confirmation tracker
+    // takes to resend and record the final signature.
+    @Value("${app.rewards.lease-timeout-ms:600000}")
+    private long leaseTimeoutMs;
+    
+    @Value("${app.rewards.retry.max-attempts:8}")
+    private int maxAttempts;
+    
+    // Kept above a blockhash lifetime (~90s) so a retry never overlaps an attempt that could still land
+    @Value("${app.rewards.retry.base-delay-ms:120000}")
+    private long retryBaseDelayMs;
+    
+    @Value("${app.rewards.retry.max-delay-ms:21600000}")
+    private long retryMaxDelayMs;
+    
+    @Value("${app.rewards.workers:4}")
+    private int workerCount;
+    
+    // Rewards waiting for a worker; beyond this they are left to the sweeper
+    @Value("${app.rewards.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    // The sweeper leaves rewards this long to the workers before claiming them itself
+    @Value("${app.rewards.sweep-grace-ms:30000}")
+    private long sweepGraceMs;
+    
+    private ThreadPoolExecutor workers;
+    
+    // Pending reward totals, kept up to date locally and re-read from the database on a schedule
+    private final Object pendingLock = new Object();
+    private long pendingCount;
+    private double pendingAmount;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                Thread thread = new Thread(r, "reward-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
     
     /**
      * Queue a reward for distribution
@@ -37,49 +134,329 @@ public class RewardDistributionService {
             .amount(amount)
             .reason(reason)
             .status(Reward.RewardStatus.PENDING)
+            .attemptCount(0)
+            .nextAttemptAt(LocalDateTime.now())
             .createdAt(LocalDateTime.now())
             .updatedAt(LocalDateTime.now())
             .build();
         
         rewardRepository.save(reward);
+        eventPublisher.publishEvent(new RewardQueuedEvent(reward.getId(), reward.getAmount()));
         log.info("Queued reward for user {}: {} LLL (reason: {})", userId, amount, reason);
     }
     
     /**
-     * Process pending rewards automatically
-     * Runs every minute to distribute rewards from vault
+     * Hand a newly committed reward to the workers; if they are saturated it waits for the sweeper
      */
-    @Scheduled(fixedRate = 60000) // Every 60 seconds
-    public void processPendingRewards() {
-        List<Reward> pendingRewards = rewardRepository.findByStatus(Reward.RewardStatus.PENDING);
-        
-        if (pendingRewards.isEmpty()) {
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRewardQueued(RewardQueuedEvent event) {
+        adjustPending(1, event.amount());
+        try {
+            workers.execute(() -> processQueuedReward(event.rewardId()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Reward worker queue full, leaving reward {} to the sweeper", event.rewardId());
+        }
+    }
+    
+    /**
+     * Worker task: claim and pay one reward. Payouts run in the settlement lane, behind user transfers.
+     */
+    @SuppressWarnings("try")
+    private void processQueuedReward(Long rewardId) {
+        try (RpcPriority.Scope ignored = RpcPriority.SETTLEMENT.enter()) {
+            Optional<Reward> claimed;
+            try {
+                claimed = claim(rewardId);
+            } catch (Exception e) {
+                log.error("Failed to claim reward {}: {}", rewardId, e.getMessage());
+                return;
+            }
+            // Empty when the sweeper or another node got to it first
+            claimed.ifPresent(this::process);
+        }
+    }
+    
+    /**
+     * Claim one reward for this node if it is still PENDING and due
+     */
+    private Optional<Reward> claim(Long rewardId) {
+        return transactionTemplate.execute(status -> {
+            if (rewardRepository.claimIfDue(rewardId, nodeId, LocalDateTime.now()) == 0) {
+                return Optional.<Reward>empty();
+            }
+            return rewardRepository.findById(rewardId);
+        });
+    }
+    
+    /**
+     * Recovery sweep for rewards the workers did not take.
+     * Every node runs this; each claims its own batches so a reward is only paid by one of them.
+     */
+    @Scheduled(fixedDelayString = "${app.rewards.sweep-interval-ms:60000}")
+    @SuppressWarnings("try")
+    public void sweepPendingRewards() {
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            List<Reward> batch;
+            while (!(batch = claimBatch()).isEmpty()) {
+                log.info("Sweeper processing {} claimed rewards", batch.size());
+                batch.forEach(this::process);
+            }
+        }
+    }
+    
+    /**
+     * Pay a reward claimed by this node, recording a failure for retry. processSingleReward only
+     * throws before the transfer is signed; later failures leave the reward SENDING.
+     */
+    private void process(Reward reward) {
+        if (leaseExpired(reward)) {
+            // The reaper may already have handed it to another node
+            log.warn("Claim on reward {} expired before it was processed, leaving it to the reaper", reward.getId());
+            return;
+        }
+        try {
+            processSingleReward(reward);
+        } catch (Exception e) {
+            recordFailure(reward, e);
+        }
+    }
+    
+    /**
+     * Claim the next batch of PENDING rewards that have been due for longer than the sweep grace
+     * for this node: lock them with SKIP LOCKED and mark them PROCESSING in one transaction, so
+     * concurrent nodes claim disjoint batches
+     */
+    private List<Reward> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Reward> batch = rewardRepository.lockDueByStatus(
+                Reward.RewardStatus.PENDING, now.minus(Duration.ofMillis(sweepGraceMs)), PageRequest.of(0, claimBatchSize));
+            for (Reward reward : batch) {
+                reward.setStatus(Reward.RewardStatus.PROCESSING);
+                reward.setClaimedAt(now);
+                reward.setClaimedBy(nodeId);
+            }
+            return rewardRepository.saveAll(batch);
+        });
+    }
+    
+    /**
+     * Return rewards stuck in PROCESSING (e.g. the claiming node died) to PENDING once their lease
+     * has expired. Nothing a PROCESSING reward started can land, since its transfer is only sent
+     * once the reward is SENDING; SENDING rewards are left to resolveSendingRewards.
+     */
+    @Scheduled(fixedDelayString = "${app.rewards.reaper-interval-ms:60000}",
+               initialDelayString = "${app.rewards.reaper-interval-ms:60000}")
+    public void releaseExpiredClaims() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer released = transactionTemplate.execute(status ->
+            rewardRepository.releaseExpiredClaims(now.minus(Duration.ofMillis(leaseTimeoutMs)), now));
+        if (released != null && released > 0) {
+            log.warn("Returned {} rewards with expired PROCESSING claims to PENDING", released);
+        }
+    }
+    
+    /**
+     * Settle SENDING rewards from the status of their signature: complete the ones whose transfer
+     * landed, and requeue the ones whose transfer failed or can no longer land (the finalized
+     * block height is past its lastValidBlockHeight). An outcome the confirmation tracker recorded
+     * (after its resends) is taken as final. Anything else is checked again later.
+     */
+    @Scheduled(fixedDelayString = "${app.rewards.sending-check-interval-ms:60000}",
+               initialDelayString = "${app.rewards.sending-check-interval-ms:60000}")
+    @SuppressWarnings("try")
+    public void resolveSendingRewards() {
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            List<Reward> batch;
+            while (!(batch = claimSendingBatch()).isEmpty()) {
+                resolveSending(batch);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to resolve SENDING rewards: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Lock the next batch of due SENDING rewards and push their next check out by the retry base
+     * delay, so concurrent nodes check disjoint batches and a failed check is retried later
+     */
+    private List<Reward> claimSendingBatch() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Reward> batch = rewardRepository.lockDueByStatus(
+                Reward.RewardStatus.SENDING, now, PageRequest.of(0, claimBatchSize));
+            for (Reward reward : batch) {
+                reward.setNextAttemptAt(now.plus(Duration.ofMillis(retryBaseDelayMs)));
+            }
+            return rewardRepository.saveAll(batch);
+        });
+    }
+    
+    private void resolveSending(List<Reward> batch) {
+        if (!solanaService.isRealIntegration()) {
+            // A simulated transfer moves funds only when its send returns, after which the reward is
+            // normally completed; one still SENDING is taken as not sent
+            batch.forEach(reward -> abandonSending(reward, "Simulated transfer was not completed"));
             return;
         }
         
-        log.info("Processing {} pending rewards", pendingRewards.size());
-        
-        for (Reward reward : pendingRewards) {
+        List<String> signatures = batch.stream().map(Reward::getTransactionSignature).toList();
+        // Searching the history too: these transfers are older than the recent status cache
+        Map<String, SignatureStatus> statuses = solanaService.getSignatureStatuses(signatures, true);
+        Long finalizedHeight = null;
+        for (Reward reward : batch) {
+            String signature = reward.getTransactionSignature();
+            SignatureStatus status = statuses.get(signature);
+            TxConfirmationStatus outcome = reward.getConfirmationStatus();
             try {
-                processSingleReward(reward);
+                if (outcome == TxConfirmationStatus.CONFIRMED) {
+                    completeSending(reward, signature, TxConfirmationStatus.CONFIRMED);
+                } else if (outcome == TxConfirmationStatus.FAILED) {
+                    abandonSending(reward, "Transfer " + signature + " failed on chain");
+                } else if (outcome == TxConfirmationStatus.EXPIRED) {
+                    abandonSending(reward, "Transfer " + signature + " expired without landing after resends");
+                } else if (status != null && status.failed()) {
+                    abandonSending(reward, "Transfer " + signature + " failed on chain");
+                } else if (status != null && status.isConfirmed()) {
+                    completeSending(reward, signature, TxConfirmationStatus.CONFIRMED);
+                } else if (status == null) {
+                    if (finalizedHeight == null) {
+                        finalizedHeight = solanaService.getBlockHeight("finalized");
+                    }
+                    long lastValidBlockHeight = reward.getLastValidBlockHeight() != null ? reward.getLastValidBlockHeight() : 0L;
+                    if (finalizedHeight > lastValidBlockHeight) {
+                        abandonSending(reward, "Transfer " + signature + " expired without landing");
+                    }
+                }
+                // Otherwise it is processed but not confirmed, or can still land: the claim already deferred it
             } catch (Exception e) {
-                log.error("Failed to process reward {}: {}", reward.getId(), e.getMessage());
-                reward.setStatus(Reward.RewardStatus.FAILED);
-                reward.setErrorMessage(e.getMessage());
-                rewardRepository.save(reward);
+                log.warn("Failed to resolve SENDING reward {} ({}): {}", reward.getId(), signature, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Credit the user and complete a SENDING reward whose transfer has landed (or, simulated, was sent)
+     * @return false if the reward was no longer SENDING with that signature
+     */
+    private boolean completeSending(Reward reward, String signature, TxConfirmationStatus confirmationStatus) {
+        Boolean completed = transactionTemplate.execute(status -> {
+            if (rewardRepository.completeSending(reward.getId(), signature, confirmationStatus, LocalDateTime.now()) == 0) {
+                return false;
             }
+            // Credit the user's token balance and complete the reward together
+            // This ensures the user sees their reward balance immediately
+            userService.updateBalance(reward.getUserId(), reward.getAmount());
+            return true;
+        });
+        if (!Boolean.TRUE.equals(completed)) {
+            log.warn("Reward {} was no longer SENDING as {}, not completing it", reward.getId(), signature);
+            return false;
         }
+        adjustPending(-1, -reward.getAmount());
+        return true;
     }
     
     /**
-     * Process a single reward
+     * Requeue (or dead-letter) a SENDING reward whose transfer will never land, dropping its signature
+     */
+    private void abandonSending(Reward reward, String reason) {
+        int attempts = (reward.getAttemptCount() != null ? reward.getAttemptCount() : 0) + 1;
+        boolean deadLetter = attempts >= maxAttempts;
+        Duration delay = retryDelay(attempts);
+        LocalDateTime now = LocalDateTime.now();
+        
+        Integer updated = transactionTemplate.execute(status -> rewardRepository.abandonSending(reward.getId(),
+            reward.getTransactionSignature(),
+            deadLetter ? Reward.RewardStatus.DEAD_LETTER : Reward.RewardStatus.PENDING,
+            attempts, deadLetter ? null : now.plus(delay), truncate(reason), now));
+        if (updated == null || updated == 0) {
+            return;
+        }
+        if (deadLetter) {
+            adjustPending(-1, -reward.getAmount());
+            log.error("Reward {} dead-lettered after {} attempts: {}", reward.getId(), attempts, reason);
+        } else {
+            log.warn("{} for reward {} (attempt {}/{}), retrying in {}s",
+                reason, reward.getId(), attempts, maxAttempts, delay.toSeconds());
+        }
+    }
+    
+    /**
+     * Schedule a failed reward for another attempt with exponential backoff and jitter, or
+     * dead-letter it once it has used up its attempts
+     */
+    private void recordFailure(Reward reward, Exception e) {
+        int attempts = (reward.getAttemptCount() != null ? reward.getAttemptCount() : 0) + 1;
+        reward.setAttemptCount(attempts);
+        reward.setErrorMessage(truncate(e.getMessage()));
+        reward.setClaimedAt(null);
+        reward.setClaimedBy(null);
+        
+        if (attempts >= maxAttempts) {
+            reward.setStatus(Reward.RewardStatus.DEAD_LETTER);
+            reward.setNextAttemptAt(null);
+            log.error("Reward {} dead-lettered after {} attempts: {}", reward.getId(), attempts, e.getMessage());
+        } else {
+            Duration delay = retryDelay(attempts);
+            reward.setStatus(Reward.RewardStatus.PENDING);
+            reward.setNextAttemptAt(LocalDateTime.now().plus(delay));
+            log.warn("Failed to process reward {} (attempt {}/{}), retrying in {}s: {}",
+                reward.getId(), attempts, maxAttempts, delay.toSeconds(), e.getMessage());
+        }
+        rewardRepository.save(reward);
+        if (reward.getStatus() == Reward.RewardStatus.DEAD_LETTER) {
+            adjustPending(-1, -reward.getAmount());
+        }
+    }
+    
+    /**
+     * Base delay doubled per attempt, capped, then jittered upwards by up to half so rewards that
+     * failed together (e.g. during an RPC outage) do not all retry together. The jitter only adds,
+     * so no retry comes sooner than the base delay (kept above a blockhash lifetime).
+     */
+    private Duration retryDelay(int attempts) {
+        long delay = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(attempts - 1, 30));
+        return Duration.ofMillis(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+    
+    /**
+     * Put a dead-lettered reward back in the queue with a fresh set of attempts
      */
     @Transactional
+    public Reward retryDeadLetter(Long rewardId) {
+        Reward reward = rewardRepository.findById(rewardId)
+            .orElseThrow(() -> new RuntimeException("Reward not found: " + rewardId));
+        if (reward.getStatus() != Reward.RewardStatus.DEAD_LETTER && reward.getStatus() != Reward.RewardStatus.FAILED) {
+            throw new RuntimeException("Reward " + rewardId + " is " + reward.getStatus() + ", not dead-lettered");
+        }
+        reward.setStatus(Reward.RewardStatus.PENDING);
+        reward.setAttemptCount(0);
+        reward.setNextAttemptAt(LocalDateTime.now());
+        log.info("Requeued dead-lettered reward {} for user {}", rewardId, reward.getUserId());
+        Reward saved = rewardRepository.save(reward);
+        adjustPending(1, reward.getAmount());
+        return saved;
+    }
+    
+    private static String truncate(String message) {
+        return message != null && message.length() > 500 ? message.substring(0, 500) : message;
+    }
+    
+    private boolean leaseExpired(Reward reward) {
+        return reward.getClaimedAt() == null
+            || reward.getClaimedAt().plus(Duration.ofMillis(leaseTimeoutMs)).isBefore(LocalDateTime.now());
+    }
+    
+    /**
+     * Process a single reward claimed by this node.
+     *
+     * The transfer is signed first and the reward moved to SENDING with its signature before it is
+     * sent, so a node that dies at any point leaves either an unsigned PROCESSING reward or one the
+     * resolver can settle from the chain. Only failures before that are thrown for a retry. A real
+     * transfer is credited once it is confirmed, not when it is sent.
+     */
     public void processSingleReward(Reward reward) {
-        // Mark as processing
-        reward.setStatus(Reward.RewardStatus.PROCESSING);
-        rewardRepository.save(reward);
-        
         // Get user and their wallet
         User user = userRepository.findById(reward.getUserId())
             .orElseThrow(() -> new RuntimeException("User not found: " + reward.getUserId()));
@@ -90,65 +467,134 @@ public class RewardDistributionService {
         log.info("Processing reward {}: {} LLL to user {} (wallet: {})", 
             reward.getId(), reward.getAmount(), user.getUsername(), wallet.getPublicKey());
         
-        // Transfer tokens from vault to user's wallet
-        // TODO: Implement actual Solana transfer
-        String transactionSignature = transferTokensFromVault(wallet.getPublicKey(), reward.getAmount());
+        // Hold the amount on the least busy vault shard that can cover it (throws if none can)
+        VaultLedger.Reservation reservation = vaultLedger.reserve(reward.getAmount());
+        VaultShard shard = reservation.shard();
         
-        // Update user's token balance in the database
-        // This ensures the user sees their reward balance immediately
-        userService.updateBalance(reward.getUserId(), reward.getAmount());
+        SolanaService.PreparedTransfer transfer;
+        try {
+            transfer = solanaService.prepareTransferSPLToken(shard, wallet.getPublicKey(), reward.getAmount());
+            if (!markSending(reward, transfer)) {
+                vaultLedger.release(reservation);
+                log.warn("Claim on reward {} expired before its transfer was sent, leaving it to the reaper", reward.getId());
+                return;
+            }
+        } catch (RuntimeException e) {
+            // Nothing was sent
+            vaultLedger.release(reservation);
+            throw e;
+        }
         
-        // Update reward status
-        reward.setStatus(Reward.RewardStatus.COMPLETED);
-        reward.setTransactionSignature(transactionSignature);
-        rewardRepository.save(reward);
+        log.info("Transferring {} LLL from vault shard {} ({}) to recipient wallet: {} - TX: {}", 
+            reward.getAmount(), shard.getIndex(), shard.getPublicKey(), wallet.getPublicKey(), transfer.signature());
+        
+        String transactionSignature;
+        try {
+            // Call real Solana transfer (will use simulation if real integration is disabled)
+            transactionSignature = solanaService.sendPreparedTransfer(transfer);
+        } catch (RuntimeException e) {
+            // The cluster may have received it anyway: keep the amount held and settle from the signature
+            vaultLedger.commit(reservation, transfer.signature());
+            deferSending(reward, transfer.signature(), e.getMessage());
+            return;
+        }
+        vaultLedger.commit(reservation, transactionSignature);
+        
+        if (solanaService.isRealIntegration()) {
+            // Sent is not landed: a transfer that later expires or fails must not have been credited,
+            // so the reward stays SENDING until the confirmation tracker records its outcome and
+            // resolveSendingRewards completes or requeues it
+            log.info("Sent {} LLL to user {} - TX: {}, awaiting confirmation",
+                reward.getAmount(), user.getUsername(), transactionSignature);
+            return;
+        }
+        
+        try {
+            if (!completeSending(reward, transfer.signature(), null)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.error("Reward {} was sent as {} but could not be completed, leaving it SENDING: {}",
+                reward.getId(), transactionSignature, e.getMessage());
+            return;
+        }
         
         log.info("Successfully distributed {} LLL to user {} - TX: {}", 
             reward.getAmount(), user.getUsername(), transactionSignature);
     }
     
     /**
-     * Transfer tokens from vault to user wallet
+     * Move a reward this node still holds to SENDING with its signed transfer. Until checked
+     * sooner, it is first checked a lease timeout from now.
      */
-    private String transferTokensFromVault(String recipientWallet, Double amount) {
-        String vaultPublicKey = vaultService.getVaultPublicKey();
-        
-        log.info("Transferring {} LLL from vault ({}) to recipient wallet: {}", 
-            amount, vaultPublicKey, recipientWallet);
-        
-        // Check vault balance first
-        Double vaultBalance = vaultService.getVaultBalance(solanaService);
-        log.info("Vault balance: {} LLL, Attempting to transfer: {} LLL", vaultBalance, amount);
-        
-        if (vaultBalance < amount) {
-            log.error("Vault has insufficient balance! Balance: {} LLL, Required: {} LLL", vaultBalance, amount);
-            throw new RuntimeException("Vault has insufficient balance. Current: " + vaultBalance + " LLL");
-        }
-        
+    private boolean markSending(Reward reward, SolanaService.PreparedTransfer transfer) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer marked = transactionTemplate.execute(status -> rewardRepository.markSending(reward.getId(), nodeId,
+            now.minus(Duration.ofMillis(leaseTimeoutMs)), transfer.signature(), transfer.lastValidBlockHeight(),
+            now.plus(Duration.ofMillis(leaseTimeoutMs)), now));
+        return marked != null && marked > 0;
+    }
+    
+    /**
+     * A SENDING reward's send failed: check its signature once its blockhash has had time to expire
+     */
+    private void deferSending(Reward reward, String signature, String error) {
+        log.error("Failed to send reward {} transfer {}, checking its status in {}s: {}",
+            reward.getId(), signature, Duration.ofMillis(retryBaseDelayMs).toSeconds(), error);
+        LocalDateTime now = LocalDateTime.now();
         try {
-            // Call real Solana transfer (will use simulation if real integration is disabled)
-            String txSignature = solanaService.transferSPLToken(vaultPublicKey, recipientWallet, amount);
-            
-            log.info("Successfully transferred {} LLL from vault to {} - TX: {}", amount, recipientWallet, txSignature);
-            return txSignature;
-            
-        } catch (Exception e) {
-            log.error("Failed to transfer tokens from vault to {}: {}", recipientWallet, e.getMessage());
-            // For now, return a mock signature to prevent blocking user rewards
-            String mockSignature = "mock_tx_" + java.util.UUID.randomUUID().toString();
-            log.warn("Using mock signature due to transfer failure: {}", mockSignature);
-            return mockSignature;
+            transactionTemplate.executeWithoutResult(status -> rewardRepository.deferSending(reward.getId(), signature,
+                now.plus(Duration.ofMillis(retryBaseDelayMs)), truncate(error), now));
+        } catch (RuntimeException e) {
+            // It stays SENDING and is checked a lease timeout after it was signed instead
+            log.error("Failed to record the send failure of reward {}: {}", reward.getId(), e.getMessage());
         }
     }
     
     /**
-     * Get total pending rewards amount
+     * Get total pending rewards amount (PENDING, PROCESSING or SENDING), from the cached totals
      */
     public Double calculatePendingRewards() {
-        List<Reward> pending = rewardRepository.findByStatus(Reward.RewardStatus.PENDING);
-        return pending.stream()
-            .mapToDouble(Reward::getAmount)
-            .sum();
+        synchronized (pendingLock) {
+            return pendingAmount;
+        }
+    }
+    
+    /**
+     * Number of pending rewards, from the cached totals
+     */
+    public long getPendingRewardCount() {
+        synchronized (pendingLock) {
+            return pendingCount;
+        }
+    }
+    
+    /**
+     * Re-read the pending totals from the database. Local adjustments only see this node's rewards,
+     * and one landing while the query runs may be counted twice or not at all, so the cache is
+     * corrected here on every run.
+     */
+    @Scheduled(fixedDelayString = "${app.rewards.pending-totals-refresh-ms:60000}")
+    public void refreshPendingTotals() {
+        RewardRepository.RewardTotals totals = rewardRepository.totalsByStatusIn(PENDING_STATUSES);
+        synchronized (pendingLock) {
+            pendingCount = totals.getRewardCount();
+            pendingAmount = totals.getTotalAmount();
+        }
+    }
+    
+    private void adjustPending(long count, double amount) {
+        synchronized (pendingLock) {
+            pendingCount += count;
+            pendingAmount += amount;
+        }
+    }
+    
+    /**
+     * Count and amount of a user's pending rewards
+     */
+    public RewardRepository.RewardTotals getUserPendingTotals(Long userId) {
+        return rewardRepository.totalsByStatusInAndUserId(PENDING_STATUSES, userId);
     }
     
     /**
@@ -0,0 +1,57 @@
+package com.lll.futures.service;
+
+import com.lll.futures.model.SchedulerLease;
+import com.lll.futures.repository.SchedulerLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Elects one node to run a scheduled job through a lease row in the database.
+ * A job that must not run on every node asks for its lease at the start of each run and skips the
+ * run if another node holds it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLeaseService {
+    
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    
+    /**
+     * Take or renew the named lease for this node
+     * @param ttl How long the lease lasts without renewal; longer than the job's interval
+     * @return Whether this node holds the lease
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        Integer acquired = transactionTemplate.execute(status ->
+            schedulerLeaseRepository.tryAcquire(name, nodeId, now, expiresAt));
+        if (acquired != null && acquired > 0) {
+            return true;
+        }
+        if (schedulerLeaseRepository.existsById(name)) {
+            return false;
+        }
+        
+        // First run anywhere - whichever node inserts the row holds the lease
+        try {
+            transactionTemplate.executeWithoutResult(status -> schedulerLeaseRepository.saveAndFlush(
+                SchedulerLease.builder().name(name).owner(nodeId).expiresAt(expiresAt).build()));
+            log.info("Node {} took the {} lease", nodeId, name);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
@@ -2,20 +2,26 @@ package com.lll.futures.service;
 
 import com.lll.futures.dto.MarketDTO;
 import com.lll.futures.dto.SettleMarketRequest;
+import com.lll.futures.dto.SettlementPreviewDTO;
 import com.lll.futures.model.Market;
 import com.lll.futures.model.Order;
 import com.lll.futures.model.Transaction;
+import com.lll.futures.model.TxConfirmationStatus;
 import com.lll.futures.model.User;
 import com.lll.futures.repository.MarketRepository;
 import com.lll.futures.repository.OrderRepository;
 import com.lll.futures.repository.TransactionRepository;
+import com.lll.futures.service.solana.RpcPriority;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
@@ -28,11 +34,20 @@ public class SettlementService {
     private final UserService userService;
     private final MarketService marketService;
     private final SolanaService solanaService;
-    private final VaultService vaultService;
+    private final VaultLedger vaultLedger;
     private final WalletService walletService;
+    private final TransactionConfirmationTracker confirmationTracker;
     
+    @SuppressWarnings("try")
     @Transactional
     public MarketDTO settleMarket(SettleMarketRequest request) {
+        // Payout transfers yield the RPC budget to user-facing transfers
+        try (RpcPriority.Scope ignored = RpcPriority.SETTLEMENT.enter()) {
+            return settle(request);
+        }
+    }
+    
+    private MarketDTO settle(SettleMarketRequest request) {
         Market market = marketRepository.findById(request.getMarketId())
                 .orElseThrow(() -> new RuntimeException("Market not found with id: " + request.getMarketId()));
         
@@ -58,7 +73,21 @@ public class SettlementService {
         int losersCount = 0;
         Double totalPayouts = 0.0;
         
+        // Start every payout and refund transfer before waiting on any; reserve() blocks while all
+        // vault shards are at their in-flight limit, so the shard permits bound the concurrency
+        List<CompletableFuture<String>> transfers = new ArrayList<>(openOrders.size());
         for (Order order : openOrders) {
+            if (determineWinner(order, request.getOutcome())) {
+                transfers.add(transferFromVaultAsync(order.getWalletAddress(), order.getPotentialPayout()));
+            } else if (request.getOutcome() == Market.MarketOutcome.VOID) {
+                transfers.add(transferFromVaultAsync(order.getWalletAddress(), order.getStakeAmount()));
+            } else {
+                transfers.add(null);
+            }
+        }
+        
+        for (int i = 0; i < openOrders.size(); i++) {
+            Order order = openOrders.get(i);
             boolean isWinner = determineWinner(order, request.getOutcome());
             
             if (isWinner) {
@@ -68,14 +97,11 @@ public class SettlementService {
                 
                 // Transfer tokens from vault to winner's wallet
                 try {
-                    String vaultPublicKey = vaultService.getVaultPublicKey();
                     String userWalletAddress = order.getWalletAddress();
                     
-                    String txSignature = solanaService.transferSPLToken(
-                        vaultPublicKey, 
-                        userWalletAddress, 
-                        payout
-                    );
+                    String txSignature = awaitTransfer(transfers.get(i));
+                    
+                    recordPayout(order, txSignature);
                     
                     log.info("Transferred {} LLL from vault to winner {} - TX: {}", 
                         payout, userWalletAddress, txSignature);
@@ -102,14 +128,11 @@ public class SettlementService {
                 
                 // Transfer tokens from vault back to user's wallet
                 try {
-                    String vaultPublicKey = vaultService.getVaultPublicKey();
                     String userWalletAddress = order.getWalletAddress();
                     
-                    String txSignature = solanaService.transferSPLToken(
-                        vaultPublicKey, 
-                        userWalletAddress, 
-                        refund
-                    );
+                    String txSignature = awaitTransfer(transfers.get(i));
+                    
+                    recordPayout(order, txSignature);
                     
                     log.info("Transferred {} LLL refund from vault to user {} - TX: {}", 
                         refund, userWalletAddress, txSignature);
@@ -152,6 +175,116 @@ public class SettlementService {
         return marketService.getMarketById(market.getId());
     }
     
+    /**
+     * Preview winners, losers, payouts and vault shortfall for every possible outcome.
+     * Uses a single grouped aggregate over orders instead of loading them.
+     */
+    @Transactional(readOnly = true)
+    public SettlementPreviewDTO previewSettlement(Long marketId) {
+        Market market = marketRepository.findById(marketId)
+                .orElseThrow(() -> new RuntimeException("Market not found with id: " + marketId));
+        
+        long yesCount = 0;
+        long noCount = 0;
+        double yesStake = 0.0;
+        double noStake = 0.0;
+        double yesPayout = 0.0;
+        double noPayout = 0.0;
+        
+        for (OrderRepository.SideStatusTotals totals : orderRepository.aggregateByMarketId(marketId)) {
+            if (totals.getStatus() != Order.OrderStatus.OPEN) {
+                continue;
+            }
+            if (totals.getSide() == Order.OrderSide.YES) {
+                yesCount += totals.getOrderCount();
+                yesStake += valueOrZero(totals.getTotalStake());
+                yesPayout += valueOrZero(totals.getTotalPotentialPayout());
+            } else {
+                noCount += totals.getOrderCount();
+                noStake += valueOrZero(totals.getTotalStake());
+                noPayout += valueOrZero(totals.getTotalPotentialPayout());
+            }
+        }
+        
+        // Spendable vault balance from the local ledger (no RPC)
+        Double vaultBalance = vaultLedger.getAvailableBalance();
+        
+        List<SettlementPreviewDTO.OutcomePreview> outcomes = new ArrayList<>();
+        outcomes.add(buildOutcomePreview(Market.MarketOutcome.YES, yesCount, noCount, 0L, yesPayout, vaultBalance));
+        outcomes.add(buildOutcomePreview(Market.MarketOutcome.NO, noCount, yesCount, 0L, noPayout, vaultBalance));
+        outcomes.add(buildOutcomePreview(Market.MarketOutcome.VOID, 0L, 0L, yesCount + noCount,
+                yesStake + noStake, vaultBalance));
+        
+        return SettlementPreviewDTO.builder()
+                .marketId(market.getId())
+                .marketTitle(market.getTitle())
+                .status(market.getStatus())
+                .openOrders(yesCount + noCount)
+                .totalOpenStake(yesStake + noStake)
+                .vaultBalance(vaultBalance)
+                .outcomes(outcomes)
+                .build();
+    }
+    
+    private SettlementPreviewDTO.OutcomePreview buildOutcomePreview(Market.MarketOutcome outcome, long winners,
+                                                                    long losers, long refunds, double totalPayout,
+                                                                    Double vaultBalance) {
+        return SettlementPreviewDTO.OutcomePreview.builder()
+                .outcome(outcome)
+                .winners(winners)
+                .losers(losers)
+                .refunds(refunds)
+                .totalPayout(totalPayout)
+                .vaultShortfall(Math.max(0.0, totalPayout - vaultBalance))
+                .build();
+    }
+    
+    private double valueOrZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+    
+    /**
+     * Start a payout from the vault, holding the amount against the vault ledger while it is in flight
+     * @return Future of the transaction signature; failed if the vault cannot cover the amount
+     */
+    private CompletableFuture<String> transferFromVaultAsync(String userWalletAddress, Double amount) {
+        VaultLedger.Reservation reservation;
+        CompletableFuture<String> transfer;
+        try {
+            reservation = vaultLedger.reserve(amount);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            transfer = solanaService.transferSPLTokenAsync(reservation.shard(), userWalletAddress, amount);
+        } catch (RuntimeException e) {
+            vaultLedger.release(reservation);
+            return CompletableFuture.failedFuture(e);
+        }
+        return transfer.whenComplete((txSignature, e) -> {
+            if (e == null) {
+                vaultLedger.commit(reservation, txSignature);
+            } else {
+                vaultLedger.release(reservation);
+            }
+        });
+    }
+    
+    private String awaitTransfer(CompletableFuture<String> transfer) {
+        try {
+            return transfer.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    private void recordPayout(Order order, String txSignature) {
+        order.setPayoutSignature(txSignature);
+        if (confirmationTracker.isTracking(txSignature)) {
+            order.setPayoutStatus(TxConfirmationStatus.SUBMITTED);
+        }
+    }
+    
     private boolean determineWinner(Order order, Market.MarketOutcome outcome) {
         if (outcome == Market.MarketOutcome.VOID) {
             return false; // No winners on void, everyone gets refunded
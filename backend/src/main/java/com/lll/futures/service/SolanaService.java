@@ -2,32 +2,91 @@ package com.lll.futures.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lll.futures.event.TransactionSubmittedEvent;
+import com.lll.futures.service.solana.Base58;
+import com.lll.futures.service.solana.BlockhashCache;
+import com.lll.futures.service.solana.RpcDecoder;
+import com.lll.futures.service.solana.RpcDecoders;
+import com.lll.futures.service.solana.RpcEndpointRouter;
+import com.lll.futures.service.solana.RpcPriority;
+import com.lll.futures.service.solana.RpcRateLimiter;
+import com.lll.futures.service.solana.SignatureInfo;
+import com.lll.futures.service.solana.SignatureStatus;
+import com.lll.futures.service.solana.SimulatedTokenLedger;
+import com.lll.futures.service.solana.SolanaRpcBatchClient;
+import com.lll.futures.service.solana.TokenAccountCache;
+import com.lll.futures.service.solana.TransactionMessage;
+import com.lll.futures.service.solana.TransactionSigner;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.p2p.solanaj.core.Account;
 import org.p2p.solanaj.core.PublicKey;
-import org.p2p.solanaj.core.Transaction;
+import org.p2p.solanaj.programs.SystemProgram;
 import org.p2p.solanaj.programs.TokenProgram;
-import org.p2p.solanaj.rpc.Cluster;
-import org.p2p.solanaj.rpc.RpcClient;
-import org.p2p.solanaj.rpc.types.LatestBlockhash;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class SolanaService {
     
-    @Value("${solana.rpc-url:https://api.devnet.solana.com}")
-    private String rpcUrl;
+    // getMultipleAccounts accepts at most 100 accounts per call
+    private static final int MAX_ACCOUNTS_PER_REQUEST = 100;
+    // getSignatureStatuses accepts at most 256 signatures per call
+    private static final int MAX_SIGNATURES_PER_REQUEST = 256;
+    // getSignaturesForAddress returns at most 1000 entries per call
+    public static final int MAX_SIGNATURES_PER_PAGE = 1000;
+    // LLL has 9 decimals
+    private static final int TOKEN_DECIMALS = 9;
+    
+    // Base fee for a transaction with a single signature
+    public static final long SIGNATURE_FEE_LAMPORTS = 5000;
+    
+    private static final int TRANSACTION_SIGNATURE_BYTES = 64;
+    
+    // Comma-separated list of RPC endpoints; defaults to the single solana.rpc-url
+    @Value("${solana.rpc-urls:${solana.rpc-url:https://api.devnet.solana.com}}")
+    private List<String> rpcUrls;
+    
+    @Value("${solana.rpc.failure-threshold:5}")
+    private int rpcFailureThreshold;
+    
+    @Value("${solana.rpc.open-duration-ms:30000}")
+    private long rpcOpenDurationMs;
+    
+    @Value("${solana.rpc.hedge-reads:true}")
+    private boolean rpcHedgeReads;
+    
+    @Value("${solana.rpc.hedge-latency-multiplier:2.0}")
+    private double rpcHedgeLatencyMultiplier;
+    
+    @Value("${solana.rpc.min-hedge-delay-ms:50}")
+    private long rpcMinHedgeDelayMs;
+    
+    // Provider quota in calls per second (0 disables limiting)
+    @Value("${solana.rpc.rate-limit-per-second:0}")
+    private double rpcRateLimitPerSecond;
+    
+    @Value("${solana.rpc.rate-limit-burst:50}")
+    private int rpcRateLimitBurst;
     
     @Value("${solana.token-mint:8ynUJf6w6FMgAknquPXRciK5kvV1Qs1FML94q8GzMsw2}")
     private String tokenMint;
@@ -38,29 +97,140 @@ public class SolanaService {
     @Value("${app.token.real-integration:true}")
     private Boolean realIntegration;
     
+    @Value("${solana.token-account-cache-size:10000}")
+    private int tokenAccountCacheSize;
+    
+    @Value("${solana.blockhash.max-age-ms:30000}")
+    private long blockhashMaxAgeMs;
+    
+    @Value("${solana.rpc.coalesce-window-micros:2000}")
+    private long rpcCoalesceWindowMicros;
+    
+    @Value("${solana.rpc.max-batch-size:100}")
+    private int rpcMaxBatchSize;
+    
+    // Shared HTTP client (one connection pool for all RPC traffic)
+    @Value("${solana.http.max-requests:128}")
+    private int httpMaxRequests;
+    
+    @Value("${solana.http.max-requests-per-host:32}")
+    private int httpMaxRequestsPerHost;
+    
+    @Value("${solana.http.max-idle-connections:16}")
+    private int httpMaxIdleConnections;
+    
+    @Value("${solana.http.keep-alive-ms:300000}")
+    private long httpKeepAliveMs;
+    
+    @Value("${solana.http.call-timeout-ms:30000}")
+    private long httpCallTimeoutMs;
+    
+    // In-process ledger used when real integration is disabled
+    @Value("${solana.simulator.initial-balance:1000}")
+    private double simulatorInitialBalance;
+    
+    @Value("${solana.simulator.vault-balance:1000000000}")
+    private double simulatorVaultBalance;
+    
+    @Value("${solana.simulator.latency-ms:0}")
+    private long simulatorLatencyMs;
+    
+    @Value("${solana.simulator.latency-sigma:0.0}")
+    private double simulatorLatencySigma;
+    
+    @Value("${solana.simulator.failure-rate:0.0}")
+    private double simulatorFailureRate;
+    
     private final VaultService vaultService;
+    private final ApplicationEventPublisher eventPublisher;
     
     // Initialize these lazily - not managed by Spring
     private OkHttpClient httpClient;
     private ObjectMapper objectMapper;
-    private RpcClient rpcClient;
+    private RpcEndpointRouter rpcRouter;
+    private RpcRateLimiter rpcRateLimiter;
+    private TokenAccountCache tokenAccountCache;
+    private BlockhashCache blockhashCache;
+    private SolanaRpcBatchClient rpcBatchClient;
+    private SimulatedTokenLedger simulatedLedger;
+    private RpcDecoder<Map<String, Long>> tokenBalanceDeltaDecoder;
     
     // Custom constructor needed for OkHttpClient and ObjectMapper initialization
-    public SolanaService(VaultService vaultService) {
+    public SolanaService(VaultService vaultService, ApplicationEventPublisher eventPublisher) {
         this.vaultService = vaultService;
+        this.eventPublisher = eventPublisher;
     }
     
     @PostConstruct
     public void init() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(httpMaxRequests);
+        dispatcher.setMaxRequestsPerHost(httpMaxRequestsPerHost);
+        
+        // HTTP/2 multiplexes concurrent batches over one connection where the endpoint supports it
         this.httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-            .readTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(httpMaxIdleConnections, httpKeepAliveMs, TimeUnit.MILLISECONDS))
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .callTimeout(httpCallTimeoutMs, TimeUnit.MILLISECONDS)
             .build();
         this.objectMapper = new ObjectMapper();
+        this.rpcRouter = new RpcEndpointRouter(rpcUrls, rpcFailureThreshold, rpcOpenDurationMs,
+            rpcHedgeLatencyMultiplier, rpcMinHedgeDelayMs);
+        this.rpcRateLimiter = new RpcRateLimiter(rpcRateLimitPerSecond, rpcRateLimitBurst);
+        this.rpcBatchClient = new SolanaRpcBatchClient(httpClient, objectMapper, rpcRouter, rpcRateLimiter,
+            rpcHedgeReads, rpcCoalesceWindowMicros, rpcMaxBatchSize, httpCallTimeoutMs);
+        this.tokenAccountCache = new TokenAccountCache(tokenMint, tokenAccountCacheSize);
+        this.blockhashCache = new BlockhashCache(this::fetchLatestBlockhashAsync, blockhashMaxAgeMs);
+        this.tokenBalanceDeltaDecoder = RpcDecoders.tokenBalanceDeltas(tokenMint);
         
-        // Initialize RPC client for SolanaJ
-        this.rpcClient = new RpcClient(rpcUrl);
-        log.info("SolanaService initialized with RPC: {}", rpcUrl);
+        this.simulatedLedger = new SimulatedTokenLedger(toBaseUnits(simulatorInitialBalance), simulatorLatencyMs,
+            simulatorLatencySigma, simulatorFailureRate);
+        if (!realIntegration && vaultService.getVaultPublicKey() != null) {
+            // The simulated vault balance is split evenly across the shards
+            List<VaultShard> shards = vaultService.getShards();
+            for (VaultShard shard : shards) {
+                simulatedLedger.seed(shard.getPublicKey(), toBaseUnits(simulatorVaultBalance / shards.size()));
+            }
+        }
+        log.info("SolanaService initialized with RPC endpoints: {}",
+            rpcRouter.getEndpoints().stream().map(RpcEndpointRouter.Endpoint::getUrl).toList());
+    }
+    
+    public RpcRateLimiter getRpcRateLimiter() {
+        return rpcRateLimiter;
+    }
+    
+    public SimulatedTokenLedger getSimulatedLedger() {
+        return simulatedLedger;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (rpcBatchClient != null) {
+            rpcBatchClient.shutdown();
+        }
+        if (httpClient != null) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+    
+    /**
+     * Keep the latest blockhash warm so signers never fetch it inline
+     */
+    @Scheduled(fixedDelayString = "${solana.blockhash.refresh-interval-ms:5000}")
+    public void refreshBlockhash() {
+        if (!realIntegration) {
+            return;
+        }
+        try {
+            blockhashCache.refresh();
+        } catch (Exception e) {
+            log.error("Background blockhash refresh failed: {}", e.getMessage());
+        }
     }
     
     /**
@@ -71,48 +241,107 @@ public class SolanaService {
     }
     
     /**
-     * Transfer SPL tokens from one wallet to another
-     * @param fromWallet Source wallet public key
+     * Transfer SPL tokens from a vault shard to another wallet
+     * @param shard Vault shard whose keypair signs the transfer
      * @param toWallet Destination wallet public key
      * @param amount Amount to transfer (in LLL tokens)
      * @return Transaction signature
      */
-    public String transferSPLToken(String fromWallet, String toWallet, Double amount) {
+    public String transferSPLToken(VaultShard shard, String toWallet, Double amount) {
+        return join(transferSPLTokenAsync(shard, toWallet, amount));
+    }
+    
+    /**
+     * Transfer SPL tokens from a vault shard without blocking the caller
+     * @return Future of the transaction signature
+     */
+    public CompletableFuture<String> transferSPLTokenAsync(VaultShard shard, String toWallet, Double amount) {
+        String fromWallet = shard.getPublicKey();
         if (!realIntegration) {
             log.debug("Real integration disabled, simulating transfer from {} to {}", fromWallet, toWallet);
-            return simulateTransaction("transfer", toWallet, amount);
+            return simulatedTransferAsync(fromWallet, toWallet, amount);
+        }
+        
+        log.info("Transferring {} LLL tokens from vault shard {} ({}) to {}", amount, shard.getIndex(), fromWallet, toWallet);
+        byte[] vaultKeypairBytes = shard.getKeypair();
+        if (vaultKeypairBytes == null || vaultKeypairBytes.length != 64) {
+            return CompletableFuture.failedFuture(
+                new RuntimeException("Failed to transfer tokens: Vault keypair not properly initialized"));
         }
         
+        // The shard signs with its cached key rather than a SolanaJ Account that re-expands it per signature
+        return transferAsync(shard, fromWallet, toWallet, amount, RpcPriority.current())
+            .whenComplete((signature, e) -> {
+                if (e == null) {
+                    log.info("Successfully transferred {} LLL tokens - TX: {}", amount, signature);
+                } else {
+                    log.error("Error transferring tokens from {} to {}: {}", fromWallet, toWallet, unwrap(e).getMessage());
+                }
+            });
+    }
+    
+    /**
+     * Sign a transfer from a vault shard without sending it, so the caller can record its signature
+     * first. Send it with {@link #sendPreparedTransfer(PreparedTransfer)} before its blockhash expires.
+     */
+    public PreparedTransfer prepareTransferSPLToken(VaultShard shard, String toWallet, Double amount) {
+        String fromWallet = shard.getPublicKey();
+        if (!realIntegration) {
+            // Simulated transfers move funds only once sent, and then under the signature chosen here
+            String signature = simulatedLedger.randomSignature();
+            return new PreparedTransfer(signature, 0L, () -> {
+                simulatedTransfer(fromWallet, toWallet, amount);
+                return signature;
+            });
+        }
+        
+        byte[] vaultKeypairBytes = shard.getKeypair();
+        if (vaultKeypairBytes == null || vaultKeypairBytes.length != 64) {
+            throw new RuntimeException("Failed to transfer tokens: Vault keypair not properly initialized");
+        }
+        
+        long amountInLamports = toBaseUnits(amount);
+        RpcPriority priority = RpcPriority.current();
+        String[] accounts;
         try {
-            log.info("Transferring {} LLL tokens from {} to {}", amount, fromWallet, toWallet);
-            
-            // Convert amount to lamports (LLL has 9 decimals)
-            long amountInLamports = (long) (amount * Math.pow(10, 9));
-            
-            // Get source token account
-            String sourceTokenAccount = getTokenAccountAddress(fromWallet);
-            if (sourceTokenAccount == null) {
-                throw new RuntimeException("Source wallet has no token account");
-            }
-            
-            // Get or create destination token account
-            String destinationTokenAccount = getOrCreateTokenAccount(toWallet);
-            
-            // Build transfer instruction
-            String transactionSignature = sendSPLTokenTransfer(
-                fromWallet,
-                sourceTokenAccount,
-                destinationTokenAccount,
-                amountInLamports
-            );
-            
-            log.info("Successfully transferred {} LLL tokens - TX: {}", amount, transactionSignature);
-            return transactionSignature;
-            
-        } catch (Exception e) {
-            log.error("Error transferring tokens from {} to {}: {}", fromWallet, toWallet, e.getMessage());
-            throw new RuntimeException("Failed to transfer tokens: " + e.getMessage());
+            accounts = join(resolveTransferAccountsAsync(fromWallet, toWallet, priority));
+        } catch (RuntimeException e) {
+            tokenAccountCache.evict(fromWallet);
+            tokenAccountCache.evict(toWallet);
+            throw new RuntimeException("Failed to transfer tokens: " + e.getMessage(), e);
         }
+        
+        SignedTransaction signed = sign(buildTransferMessage(shard.getAccount(), accounts[0], accounts[1], amountInLamports),
+            shard, blockhashCache.get());
+        log.info("Prepared transfer of {} LLL from vault shard {} ({}) to {} - TX: {}",
+            amount, shard.getIndex(), fromWallet, toWallet, signed.signature());
+        
+        return new PreparedTransfer(signed.signature(), signed.blockhash().lastValidBlockHeight(), () -> {
+            TransactionSubmittedEvent.Submission submission;
+            try {
+                submission = join(sendAsync(signed, priority));
+            } catch (RuntimeException e) {
+                if (isBlockhashNotFound(e)) {
+                    // This transaction cannot be re-signed, but the next one should not use the stale blockhash
+                    blockhashCache.refreshAsync();
+                }
+                log.error("Error transferring tokens from {} to {}: {}", fromWallet, toWallet, e.getMessage());
+                throw new RuntimeException("Failed to transfer tokens: " + e.getMessage(), e);
+            }
+            eventPublisher.publishEvent(new TransactionSubmittedEvent(submission,
+                () -> join(submitTransferAsync(shard, accounts[0], accounts[1], amountInLamports, priority))));
+            log.info("Successfully transferred {} LLL tokens - TX: {}", amount, submission.signature());
+            return submission.signature();
+        });
+    }
+    
+    /**
+     * Send a transfer signed by {@link #prepareTransferSPLToken}. A failure does not mean the
+     * transfer did not land: the cluster may have received it before the error.
+     * @return Transaction signature
+     */
+    public String sendPreparedTransfer(PreparedTransfer transfer) {
+        return transfer.sender.get();
     }
     
     /**
@@ -127,257 +356,634 @@ public class SolanaService {
     public String transferSPLTokenFromUserWallet(byte[] userKeypairBytes, String fromWallet, String toWallet, Double amount) {
         if (!realIntegration) {
             log.debug("Real integration disabled, simulating transfer from user wallet {} to {}", fromWallet, toWallet);
-            return simulateTransaction("transfer", toWallet, amount);
+            return simulatedTransfer(fromWallet, toWallet, amount);
+        }
+        
+        log.info("Transferring {} LLL tokens from user wallet {} to {}", amount, fromWallet, toWallet);
+        if (userKeypairBytes == null || userKeypairBytes.length != 64) {
+            throw new RuntimeException("Failed to transfer tokens: Invalid user keypair: must be 64 bytes");
         }
         
         try {
-            log.info("Transferring {} LLL tokens from user wallet {} to {}", amount, fromWallet, toWallet);
-            
-            if (userKeypairBytes == null || userKeypairBytes.length != 64) {
-                throw new RuntimeException("Invalid user keypair: must be 64 bytes");
-            }
-            
-            // Convert amount to lamports (LLL has 9 decimals)
-            long amountInLamports = (long) (amount * Math.pow(10, 9));
-            
-            // Get source token account
-            String sourceTokenAccount = getTokenAccountAddress(fromWallet);
-            if (sourceTokenAccount == null) {
-                throw new RuntimeException("Source wallet has no token account");
-            }
-            
-            // Get or create destination token account
-            String destinationTokenAccount = getOrCreateTokenAccount(toWallet);
-            
-            // Build transfer instruction with user's keypair
-            String transactionSignature = sendSPLTokenTransferWithKeypair(
-                userKeypairBytes,
-                fromWallet,
-                sourceTokenAccount,
-                destinationTokenAccount,
-                amountInLamports
-            );
-            
+            String transactionSignature = join(transferAsync(TransactionSigner.of(new Account(userKeypairBytes)),
+                fromWallet, toWallet, amount, RpcPriority.current()));
             log.info("Successfully transferred {} LLL tokens from user wallet - TX: {}", amount, transactionSignature);
             return transactionSignature;
-            
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             log.error("Error transferring tokens from user wallet {} to {}: {}", fromWallet, toWallet, e.getMessage());
-            throw new RuntimeException("Failed to transfer tokens: " + e.getMessage());
+            throw e;
         }
     }
     
     /**
-     * Get token account address for a wallet
+     * Resolve both token accounts concurrently, then sign and send the transfer.
+     * The priority is captured by the caller because later stages run on RPC callback threads.
      */
-    private String getTokenAccountAddress(String walletAddress) {
-        try {
-            // RPC params format: [owner, {mint: address}, {encoding: "jsonParsed"}]
-            List<Object> params = new ArrayList<>();
-            params.add(walletAddress);
-            Map<String, Object> filter = new HashMap<>();
-            filter.put("mint", tokenMint);
-            params.add(filter);
-            Map<String, Object> encoding = new HashMap<>();
-            encoding.put("encoding", "jsonParsed");
-            params.add(encoding);
-            
-            JsonNode response = callSolanaRPC("getTokenAccountsByOwner", params);
-            
-            if (response.has("result") && response.get("result").has("value")) {
-                JsonNode accounts = response.get("result").get("value");
-                if (accounts.isArray() && accounts.size() > 0) {
-                    JsonNode account = accounts.get(0);
-                    // pubkey is at the root of the account object
-                    if (account.has("pubkey")) {
-                        return account.get("pubkey").asText();
-                    }
+    private CompletableFuture<String> transferAsync(TransactionSigner signer, String fromWallet, String toWallet,
+                                                    Double amount, RpcPriority priority) {
+        // Convert amount to lamports (LLL has 9 decimals)
+        long amountInLamports = toBaseUnits(amount);
+        
+        return resolveTransferAccountsAsync(fromWallet, toWallet, priority)
+            .thenCompose(accounts -> sendSPLTokenTransferAsync(signer, accounts[0], accounts[1], amountInLamports,
+                                                                  priority))
+            .handle((signature, e) -> {
+                if (e == null) {
+                    return signature;
                 }
+                tokenAccountCache.evict(fromWallet);
+                tokenAccountCache.evict(toWallet);
+                throw new RuntimeException("Failed to transfer tokens: " + unwrap(e).getMessage(), unwrap(e));
+            });
+    }
+    
+    /**
+     * Resolve the source and (created if missing) destination token accounts concurrently
+     * @return Future of {source, destination}
+     */
+    private CompletableFuture<String[]> resolveTransferAccountsAsync(String fromWallet, String toWallet,
+                                                                    RpcPriority priority) {
+        CompletableFuture<String> sourceTokenAccount = getTokenAccountAddressAsync(fromWallet, priority);
+        CompletableFuture<String> destinationTokenAccount = getOrCreateTokenAccountAsync(toWallet, priority);
+        
+        return sourceTokenAccount.thenCombine(destinationTokenAccount, (source, destination) -> {
+            if (source == null) {
+                throw new RuntimeException("Source wallet has no token account");
             }
-            
-            return null;
-            
-        } catch (Exception e) {
-            log.error("Error getting token account address: {}", e.getMessage());
-            return null;
+            return new String[] {source, destination};
+        });
+    }
+    
+    /**
+     * Transfer SPL tokens out of a specific token account owned by the signer, e.g. one that is
+     * not the owner's associated token account
+     * @param amount Amount in token base units
+     * @return Transaction signature
+     */
+    public String transferSPLTokenFromTokenAccount(byte[] ownerKeypairBytes, String sourceTokenAccount,
+                                                   String toWallet, long amount) {
+        if (!realIntegration) {
+            throw new RuntimeException("Token account transfers need real integration");
+        }
+        if (ownerKeypairBytes == null || ownerKeypairBytes.length != 64) {
+            throw new RuntimeException("Failed to transfer tokens: Invalid keypair: must be 64 bytes");
         }
+        RpcPriority priority = RpcPriority.current();
+        return join(getOrCreateTokenAccountAsync(toWallet, priority)
+            .thenCompose(destination -> sendSPLTokenTransferAsync(TransactionSigner.of(new Account(ownerKeypairBytes)),
+                                                                  sourceTokenAccount, destination, amount, priority)));
     }
     
     /**
-     * Get or create token account for a wallet
+     * Transfer SOL from the signer's wallet; the signer also pays the fee
+     * @return Transaction signature
      */
-    private String getOrCreateTokenAccount(String walletAddress) {
-        String account = getTokenAccountAddress(walletAddress);
-        if (account != null) {
-            return account;
+    public String transferSol(byte[] keypairBytes, String toWallet, long lamports) {
+        if (!realIntegration) {
+            throw new RuntimeException("SOL transfers need real integration");
         }
-        
-        // If account doesn't exist, we need to create it
-        // For now, return the wallet address (it will be created on first transfer)
-        log.warn("Token account does not exist for {}, will need to be created", walletAddress);
-        return walletAddress;
+        if (keypairBytes == null || keypairBytes.length != 64) {
+            throw new RuntimeException("Failed to transfer SOL: Invalid keypair: must be 64 bytes");
+        }
+        Account signerAccount = new Account(keypairBytes);
+        PublicKey destination = new PublicKey(toWallet);
+        RpcPriority priority = RpcPriority.current();
+        TransactionSubmittedEvent.Submission submission = join(blockhashCache.getAsync()
+            .thenCompose(blockhash -> {
+                TransactionMessage message = new TransactionMessage();
+                message.addInstruction(SystemProgram.transfer(signerAccount.getPublicKey(), destination, lamports));
+                return signAndSendAsync(message, TransactionSigner.of(signerAccount), blockhash, priority);
+            }));
+        log.info("Transferred {} lamports from {} to {} - TX: {}",
+            lamports, signerAccount.getPublicKey().toBase58(), toWallet, submission.signature());
+        return submission.signature();
     }
     
     /**
-     * Send SPL token transfer transaction using SolanaJ library (uses vault keypair)
+     * Every token account of the mint owned by a wallet, with its amount in base units
+     * (associated or not); throws rather than reporting none when the lookup fails
      */
-    private String sendSPLTokenTransfer(String fromWallet, String sourceTokenAccount, 
-                                       String destinationTokenAccount, long amount) {
-        // Get vault keypair bytes from VaultService
-        byte[] vaultKeypairBytes = vaultService.getVaultKeypair();
-        if (vaultKeypairBytes == null || vaultKeypairBytes.length != 64) {
-            throw new RuntimeException("Vault keypair not properly initialized");
+    public Map<String, Long> getOwnedTokenAccountAmounts(String walletAddress) {
+        if (!realIntegration) {
+            return Map.of(walletAddress, simulatedLedger.getBalance(walletAddress));
+        }
+        List<Object> params = List.of(walletAddress, Map.of("mint", tokenMint), Map.of("encoding", "jsonParsed"));
+        JsonNode response;
+        try {
+            response = rpcBatchClient.call("getTokenAccountsByOwner", params);
+        } catch (IOException e) {
+            throw new RuntimeException("getTokenAccountsByOwner failed: " + e.getMessage(), e);
+        }
+        if (response.has("error")) {
+            throw new RuntimeException("getTokenAccountsByOwner failed: " + response.get("error"));
         }
         
-        return sendSPLTokenTransferWithKeypair(vaultKeypairBytes, fromWallet, sourceTokenAccount, 
-                                               destinationTokenAccount, amount);
+        Map<String, Long> amounts = new LinkedHashMap<>();
+        for (JsonNode account : response.path("result").path("value")) {
+            JsonNode amount = account.path("account").path("data").path("parsed").path("info")
+                .path("tokenAmount").path("amount");
+            amounts.put(account.path("pubkey").asText(), amount.isMissingNode() ? 0L : Long.parseLong(amount.asText()));
+        }
+        return amounts;
     }
     
     /**
-     * Send SPL token transfer transaction using SolanaJ library with custom keypair
+     * SOL balance of an account in lamports
      */
-    private String sendSPLTokenTransferWithKeypair(byte[] keypairBytes, String fromWallet, 
-                                                   String sourceTokenAccount, 
-                                                   String destinationTokenAccount, long amount) {
+    public long getLamportBalance(String address) {
+        if (!realIntegration) {
+            return 0L;
+        }
+        JsonNode response;
         try {
-            log.info("Building REAL SPL token transfer: {} lamports from {} to {}", 
-                amount, sourceTokenAccount, destinationTokenAccount);
-            
-            // Create Account from keypair
-            Account signerAccount = new Account(keypairBytes);
-            log.debug("Signer account created with public key: {}", signerAccount.getPublicKey().toBase58());
-            
-            // Convert addresses to PublicKey objects
-            PublicKey sourcePublicKey = new PublicKey(sourceTokenAccount);
-            PublicKey destinationPublicKey = new PublicKey(destinationTokenAccount);
-            PublicKey mintPublicKey = new PublicKey(tokenMint);
-            
-            log.debug("Source: {}, Dest: {}, Mint: {}", 
-                sourcePublicKey.toBase58(), destinationPublicKey.toBase58(), mintPublicKey.toBase58());
-            
-            // Build SPL Token transfer instruction
-            Transaction transaction = new Transaction();
-            
-            // Add transfer instruction
-            // TokenProgram.transfer creates an instruction to transfer SPL tokens
-            // API: TokenProgram.transfer(source, destination, amount, owner)
-            transaction.addInstruction(
-                TokenProgram.transfer(
-                    sourcePublicKey,           // source token account
-                    destinationPublicKey,      // destination token account
-                    amount,                    // amount in lamports (long)
-                    signerAccount.getPublicKey() // owner (authority) of source account
-                )
-            );
-            
-            log.debug("Transfer instruction created");
-            
-            // Get recent blockhash and set on transaction
-            LatestBlockhash latestBlockhash = rpcClient.getApi().getLatestBlockhash();
-            transaction.setRecentBlockHash(latestBlockhash.getValue().getBlockhash());
-            
-            log.debug("Transaction blockhash set: {}", latestBlockhash.getValue().getBlockhash());
-            
-            // Sign transaction with signer account
-            // SolanaJ requires signing BEFORE sending
-            transaction.sign(signerAccount);
-            
-            log.debug("Transaction signed with account: {}", signerAccount.getPublicKey().toBase58());
-            
-            // Send transaction to Solana network
-            // API requires: transaction, signer account
-            String signature = rpcClient.getApi().sendTransaction(transaction, signerAccount);
-            
-            log.info("✅ REAL SPL token transfer completed! Signature: {}", signature);
-            return signature;
-            
-        } catch (Exception e) {
-            log.error("❌ Error sending SPL token transfer: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to send SPL token transfer: " + e.getMessage());
+            response = rpcBatchClient.call("getBalance", List.of(address));
+        } catch (IOException e) {
+            throw new RuntimeException("getBalance failed: " + e.getMessage(), e);
+        }
+        JsonNode value = response.path("result").path("value");
+        if (!value.canConvertToLong()) {
+            throw new RuntimeException("getBalance failed: " + response.get("error"));
         }
+        return value.asLong();
     }
     
     /**
-     * Get recent blockhash from Solana network
+     * Get token account address for a wallet
+     * The associated token account is derived locally; the network is only asked
+     * whether it exists until it has been seen once.
+     * @return Future of the token account, or of null if none was found
      */
-    private String getRecentBlockhash() {
+    private CompletableFuture<String> getTokenAccountAddressAsync(String walletAddress, RpcPriority priority) {
+        TokenAccountCache.Entry entry;
         try {
-            // getLatestBlockhash accepts an optional commitment parameter
-            Map<String, Object> params = new HashMap<>();
-            params.put("commitment", "finalized");
-            
-            JsonNode response = callSolanaRPC("getLatestBlockhash", params);
-            
-            if (response.has("result") && response.get("result").has("value")) {
-                JsonNode value = response.get("result").get("value");
-                if (value.has("blockhash")) {
-                    String blockhash = value.get("blockhash").asText();
-                    log.debug("Retrieved recent blockhash: {}", blockhash);
-                    return blockhash;
+            entry = tokenAccountCache.get(walletAddress);
+        } catch (Exception e) {
+            log.error("Error getting token account address: {}", e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        if (entry.confirmed()) {
+            return CompletableFuture.completedFuture(entry.address());
+        }
+        
+        return accountExistsAsync(entry.address(), priority)
+            .thenCompose(exists -> {
+                if (exists) {
+                    tokenAccountCache.confirm(walletAddress, entry.address());
+                    return CompletableFuture.completedFuture(entry.address());
                 }
+                
+                // Not an associated account - fall back to any token account for the mint
+                return findTokenAccountByOwnerAsync(walletAddress, priority).thenApply(tokenAccount -> {
+                    if (tokenAccount != null) {
+                        tokenAccountCache.confirm(walletAddress, tokenAccount);
+                    }
+                    return tokenAccount;
+                });
+            })
+            .exceptionally(e -> {
+                log.error("Error getting token account address: {}", unwrap(e).getMessage());
+                return null;
+            });
+    }
+    
+    /**
+     * Check whether an account exists on-chain
+     */
+    private CompletableFuture<Boolean> accountExistsAsync(String address, RpcPriority priority) {
+        List<Object> params = new ArrayList<>();
+        params.add(address);
+        Map<String, Object> encoding = new HashMap<>();
+        encoding.put("encoding", "base64");
+        encoding.put("dataSlice", Map.of("offset", 0, "length", 0));
+        params.add(encoding);
+        
+        return rpcBatchClient.submit("getAccountInfo", params, RpcDecoders.ACCOUNT_EXISTS, priority)
+            .thenApply(Boolean.TRUE::equals);
+    }
+    
+    /**
+     * Look up the first token account for the mint owned by a wallet
+     */
+    private CompletableFuture<String> findTokenAccountByOwnerAsync(String walletAddress, RpcPriority priority) {
+        // RPC params format: [owner, {mint: address}, {encoding: "jsonParsed"}]
+        List<Object> params = new ArrayList<>();
+        params.add(walletAddress);
+        Map<String, Object> filter = new HashMap<>();
+        filter.put("mint", tokenMint);
+        params.add(filter);
+        Map<String, Object> encoding = new HashMap<>();
+        encoding.put("encoding", "jsonParsed");
+        params.add(encoding);
+        
+        // pubkey is at the root of each account object
+        return rpcBatchClient.submit("getTokenAccountsByOwner", params, RpcDecoders.FIRST_ACCOUNT_PUBKEY, priority);
+    }
+    
+    /**
+     * Get or create token account for a wallet
+     */
+    private CompletableFuture<String> getOrCreateTokenAccountAsync(String walletAddress, RpcPriority priority) {
+        return getTokenAccountAddressAsync(walletAddress, priority).thenApply(account -> {
+            if (account != null) {
+                return account;
             }
             
-            log.error("No blockhash in response: {}", response.toString());
-            return null;
-            
-        } catch (Exception e) {
-            log.error("Error getting recent blockhash: {}", e.getMessage(), e);
-            return null;
-        }
+            // If account doesn't exist, we need to create it
+            // For now, return the wallet address (it will be created on first transfer)
+            log.warn("Token account does not exist for {}, will need to be created", walletAddress);
+            return walletAddress;
+        });
     }
     
+    /**
+     * Sign and send an SPL token transfer with the given signer
+     */
+    private CompletableFuture<String> sendSPLTokenTransferAsync(TransactionSigner signer, String sourceTokenAccount,
+                                                                String destinationTokenAccount, long amount,
+                                                                RpcPriority priority) {
+        log.info("Building REAL SPL token transfer: {} lamports from {} to {}",
+            amount, sourceTokenAccount, destinationTokenAccount);
+        log.debug("Signing with public key: {}", signer.getAccount().getPublicKey().toBase58());
+        
+        return submitTransferAsync(signer, sourceTokenAccount, destinationTokenAccount, amount, priority)
+            .thenApply(submission -> {
+                // Hand the signature to the confirmation tracker, which resends once the blockhash expires
+                eventPublisher.publishEvent(new TransactionSubmittedEvent(submission,
+                    () -> join(submitTransferAsync(signer, sourceTokenAccount, destinationTokenAccount, amount,
+                                                   priority))));
+                return submission.signature();
+            });
+    }
+    
+    /**
+     * Sign and send a transfer against the cached blockhash, refreshing it once if the cluster no longer knows it
+     */
+    private CompletableFuture<TransactionSubmittedEvent.Submission> submitTransferAsync(TransactionSigner signer,
+                                                                                       String sourceTokenAccount,
+                                                                                       String destinationTokenAccount,
+                                                                                       long amount,
+                                                                                       RpcPriority priority) {
+        return blockhashCache.getAsync()
+            .thenCompose(blockhash -> signAndSendTransferAsync(signer, sourceTokenAccount,
+                                                               destinationTokenAccount, amount, blockhash, priority))
+            .exceptionallyCompose(e -> {
+                if (!isBlockhashNotFound(unwrap(e))) {
+                    return CompletableFuture.failedFuture(unwrap(e));
+                }
+                // The cached blockhash is no longer known to the cluster - fetch a new one and retry once
+                log.warn("Blockhash not found, refreshing and retrying transfer");
+                return blockhashCache.refreshAsync()
+                    .thenCompose(blockhash -> signAndSendTransferAsync(signer, sourceTokenAccount,
+                                                                       destinationTokenAccount, amount, blockhash,
+                                                                       priority));
+            });
+    }
+    
+    /**
+     * Build, sign and send a single SPL transfer against the given blockhash
+     */
+    private CompletableFuture<TransactionSubmittedEvent.Submission> signAndSendTransferAsync(
+            TransactionSigner signer, String sourceTokenAccount, String destinationTokenAccount, long amount,
+            BlockhashCache.CachedBlockhash blockhash, RpcPriority priority) {
+        TransactionMessage message = buildTransferMessage(signer.getAccount(), sourceTokenAccount, destinationTokenAccount,
+            amount);
+        return signAndSendAsync(message, signer, blockhash, priority);
+    }
+    
+    /**
+     * Build an unsigned SPL transfer between two token accounts, authorized by the signer
+     */
+    private TransactionMessage buildTransferMessage(Account signerAccount, String sourceTokenAccount,
+                                                    String destinationTokenAccount, long amount) {
+        // Convert addresses to PublicKey objects
+        PublicKey sourcePublicKey = new PublicKey(sourceTokenAccount);
+        PublicKey destinationPublicKey = new PublicKey(destinationTokenAccount);
+        
+        // Build SPL Token transfer instruction
+        TransactionMessage message = new TransactionMessage();
+        
+        // Add transfer instruction
+        // TokenProgram.transfer creates an instruction to transfer SPL tokens
+        // API: TokenProgram.transfer(source, destination, amount, owner)
+        message.addInstruction(
+            TokenProgram.transfer(
+                sourcePublicKey,           // source token account
+                destinationPublicKey,      // destination token account
+                amount,                    // amount in lamports (long)
+                signerAccount.getPublicKey() // owner (authority) of source account
+            )
+        );
+        return message;
+    }
+    
+    /**
+     * Sign a transaction against the given blockhash and send it as a raw transaction
+     */
+    private CompletableFuture<TransactionSubmittedEvent.Submission> signAndSendAsync(
+            TransactionMessage message, TransactionSigner signer, BlockhashCache.CachedBlockhash blockhash,
+            RpcPriority priority) {
+        return sendAsync(sign(message, signer, blockhash), priority);
+    }
+    
+    /**
+     * Sign a transaction against the given blockhash; its signature is known from here on
+     */
+    private SignedTransaction sign(TransactionMessage message, TransactionSigner signer,
+                                   BlockhashCache.CachedBlockhash blockhash) {
+        // Recent blockhash comes from the background-refreshed cache
+        log.debug("Transaction blockhash set: {}", blockhash.blockhash());
+        byte[] serialized = message.signAndSerialize(signer, blockhash.blockhash());
+        
+        // The wire format starts with the signature count (one byte for a single signer), then the signature,
+        // and a transaction's first signature is its id
+        String signature = Base58.encode(Arrays.copyOfRange(serialized, 1, 1 + TRANSACTION_SIGNATURE_BYTES));
+        return new SignedTransaction(signature, Base64.getEncoder().encodeToString(serialized), blockhash);
+    }
+    
+    /**
+     * Send a signed transaction as a raw transaction
+     */
+    private CompletableFuture<TransactionSubmittedEvent.Submission> sendAsync(SignedTransaction signed,
+                                                                              RpcPriority priority) {
+        // Send the signed transaction through the shared RPC client; the router picks the endpoint
+        // and the rate limiter applies in the lane the transfer was started in.
+        // Always send the serialized transaction: SolanaJ's sendTransaction(tx, signer) fetches its own
+        // blockhash and re-signs, which would bypass the cache and pay a getLatestBlockhash round trip.
+        List<Object> params = List.of(
+            signed.base64(),
+            Map.of("encoding", "base64", "preflightCommitment", "confirmed"));
+        
+        return rpcBatchClient.submit("sendTransaction", params, RpcDecoders.STRING_VALUE, priority)
+            .thenApply(signature -> {
+                if (signature == null) {
+                    throw new RuntimeException("No signature in sendTransaction response");
+                }
+                log.info("✅ REAL Solana transaction sent! Signature: {}", signature);
+                // The expiry recorded is that of the blockhash this transaction was signed with
+                return new TransactionSubmittedEvent.Submission(signature, signed.blockhash().blockhash(),
+                    signed.blockhash().lastValidBlockHeight());
+            });
+    }
+    
+    private boolean isBlockhashNotFound(Throwable e) {
+        String message = e.getMessage();
+        return message != null && message.toLowerCase().contains("blockhash not found");
+    }
+    
+    /**
+     * Fetch the latest blockhash and its last valid block height from the Solana network.
+     * Every transfer signs with it, so it is fetched in the transfer lane whichever thread asks.
+     */
+    private CompletableFuture<BlockhashCache.CachedBlockhash> fetchLatestBlockhashAsync() {
+        List<Object> params = new ArrayList<>();
+        params.add(Map.of("commitment", "finalized"));
+        
+        return rpcBatchClient.submit("getLatestBlockhash", params, RpcDecoders.LATEST_BLOCKHASH,
+            RpcPriority.USER_TRANSFER);
+    }
+    
+    
     /**
      * Get real LLL token balance for a wallet address
      */
     public Double getTokenBalance(String walletAddress) {
+        return join(getTokenBalanceAsync(walletAddress));
+    }
+    
+    /**
+     * Get real LLL token balance for a wallet address without blocking; failures complete with 0.0
+     */
+    public CompletableFuture<Double> getTokenBalanceAsync(String walletAddress) {
         if (!realIntegration) {
             log.debug("Real integration disabled, using simulation for wallet: {}", walletAddress);
-            return simulateTokenBalance(walletAddress);
+            return CompletableFuture.completedFuture(toTokenAmount(simulatedLedger.getBalance(walletAddress)));
         }
         
-        try {
-            log.debug("Fetching real token balance for wallet: {}", walletAddress);
-            
-            // Get token accounts for the wallet
-            // RPC params format: [owner, {mint: address}, {encoding: "jsonParsed"}]
-            List<Object> params = new ArrayList<>();
-            params.add(walletAddress);
-            Map<String, Object> filter = new HashMap<>();
-            filter.put("mint", tokenMint);
-            params.add(filter);
-            Map<String, Object> encoding = new HashMap<>();
-            encoding.put("encoding", "jsonParsed");
-            params.add(encoding);
-            
-            JsonNode response = callSolanaRPC("getTokenAccountsByOwner", params);
-            
-            if (response.has("result") && response.get("result").has("value")) {
-                JsonNode accounts = response.get("result").get("value");
-                if (accounts.isArray() && accounts.size() > 0) {
-                    // Get the first token account
-                    JsonNode account = accounts.get(0);
-                    
-                    // With jsonParsed encoding, the balance is in the parsed field
-                    if (account.has("account") && account.get("account").has("data") 
-                        && account.get("account").get("data").has("parsed")) {
-                        JsonNode parsed = account.get("account").get("data").get("parsed");
-                        if (parsed.has("info") && parsed.get("info").has("tokenAmount")) {
-                            JsonNode tokenAmount = parsed.get("info").get("tokenAmount");
-                            String amount = tokenAmount.get("amount").asText();
-                            Double decimals = tokenAmount.get("decimals").asDouble();
-                            return parseTokenAmount(amount, decimals);
+        log.debug("Fetching real token balance for wallet: {}", walletAddress);
+        RpcPriority priority = RpcPriority.current();
+        return getTokenAccountAddressAsync(walletAddress, priority)
+            .thenCompose(tokenAccount -> {
+                if (tokenAccount == null) {
+                    log.info("No token account found for wallet: {}", walletAddress);
+                    return CompletableFuture.completedFuture(0.0);
+                }
+                
+                return rpcBatchClient.submit("getTokenAccountBalance", List.of(tokenAccount), RpcDecoders.TOKEN_ACCOUNT_BALANCE,
+                        priority)
+                    .thenApply(amount -> {
+                        if (amount != null) {
+                            return toTokenAmount(amount);
                         }
-                    }
+                        log.info("No token balance returned for token account {} of wallet {}", tokenAccount, walletAddress);
+                        return 0.0;
+                    });
+            })
+            .exceptionally(e -> {
+                log.error("Error fetching real token balance for wallet {}: {}", walletAddress, unwrap(e).getMessage());
+                return 0.0;
+            });
+    }
+    
+    /**
+     * Get real LLL token balances for many wallets with one batched RPC request
+     */
+    public Map<String, Double> getTokenBalances(Collection<String> walletAddresses) {
+        Map<String, Double> balances = new LinkedHashMap<>();
+        if (!realIntegration) {
+            walletAddresses.forEach(wallet -> balances.put(wallet, toTokenAmount(simulatedLedger.getBalance(wallet))));
+            return balances;
+        }
+        
+        // Resolve all token accounts concurrently; unconfirmed ones are checked in shared batches
+        Map<String, CompletableFuture<String>> lookups = new LinkedHashMap<>();
+        RpcPriority priority = RpcPriority.current();
+        for (String walletAddress : walletAddresses) {
+            lookups.put(walletAddress, getTokenAccountAddressAsync(walletAddress, priority));
+        }
+        
+        List<String> wallets = new ArrayList<>();
+        List<SolanaRpcBatchClient.RpcCall> calls = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<String>> lookup : lookups.entrySet()) {
+            String walletAddress = lookup.getKey();
+            String tokenAccount = lookup.getValue().join();
+            if (tokenAccount == null) {
+                balances.put(walletAddress, 0.0);
+                continue;
+            }
+            wallets.add(walletAddress);
+            calls.add(new SolanaRpcBatchClient.RpcCall("getTokenAccountBalance", List.of(tokenAccount)));
+        }
+        
+        List<Long> amounts = callSolanaRPCBatch(calls, RpcDecoders.TOKEN_ACCOUNT_BALANCE);
+        for (int i = 0; i < wallets.size(); i++) {
+            Long amount = amounts.get(i);
+            balances.put(wallets.get(i), amount != null ? toTokenAmount(amount) : 0.0);
+        }
+        return balances;
+    }
+    
+    /**
+     * Get the token account for a wallet as derived locally, without any RPC call
+     */
+    public String deriveTokenAccountAddress(String walletAddress) {
+        return tokenAccountCache.get(walletAddress).address();
+    }
+    
+    /**
+     * Whether balances and transfers go to the Solana network
+     */
+    public boolean isRealIntegration() {
+        return realIntegration;
+    }
+    
+    /**
+     * Fetch raw token amounts (base units) for many token accounts using getMultipleAccounts
+     * Accounts are requested 100 at a time with base64 encoding and decoded from the SPL layout.
+     * Accounts that do not exist map to null.
+     */
+    public Map<String, Long> getTokenAccountAmounts(List<String> tokenAccounts) {
+        List<SolanaRpcBatchClient.RpcCall> calls = new ArrayList<>();
+        for (int from = 0; from < tokenAccounts.size(); from += MAX_ACCOUNTS_PER_REQUEST) {
+            List<String> chunk = tokenAccounts.subList(from, Math.min(from + MAX_ACCOUNTS_PER_REQUEST, tokenAccounts.size()));
+            calls.add(new SolanaRpcBatchClient.RpcCall("getMultipleAccounts",
+                List.of(new ArrayList<>(chunk), Map.of("encoding", "base64"))));
+        }
+        
+        List<List<Long>> chunks;
+        try {
+            chunks = rpcBatchClient.callBatch(calls, RpcDecoders.TOKEN_ACCOUNT_AMOUNTS);
+        } catch (IOException e) {
+            throw new RuntimeException("getMultipleAccounts failed: " + e.getMessage(), e);
+        }
+        
+        Map<String, Long> amounts = new LinkedHashMap<>();
+        for (int c = 0; c < chunks.size(); c++) {
+            List<Long> values = chunks.get(c);
+            int offset = c * MAX_ACCOUNTS_PER_REQUEST;
+            for (int i = 0; i < values.size(); i++) {
+                amounts.put(tokenAccounts.get(offset + i), values.get(i));
+            }
+        }
+        return amounts;
+    }
+    
+    /**
+     * Fetch statuses for many signatures, 256 per call in one batched request.
+     * Signatures the cluster does not know are absent from the result; RPC failures throw
+     * so callers never mistake an outage for a dropped transaction.
+     */
+    public Map<String, SignatureStatus> getSignatureStatuses(List<String> signatures) {
+        return getSignatureStatuses(signatures, false);
+    }
+    
+    /**
+     * Fetch statuses for many signatures, optionally searching the ledger history as well as the
+     * recent status cache (needed for transactions older than a couple of minutes)
+     */
+    public Map<String, SignatureStatus> getSignatureStatuses(List<String> signatures, boolean searchTransactionHistory) {
+        List<SolanaRpcBatchClient.RpcCall> calls = new ArrayList<>();
+        for (int from = 0; from < signatures.size(); from += MAX_SIGNATURES_PER_REQUEST) {
+            List<String> chunk = signatures.subList(from, Math.min(from + MAX_SIGNATURES_PER_REQUEST, signatures.size()));
+            calls.add(new SolanaRpcBatchClient.RpcCall("getSignatureStatuses",
+                List.of(new ArrayList<>(chunk), Map.of("searchTransactionHistory", searchTransactionHistory))));
+        }
+        
+        List<List<SignatureStatus>> chunks;
+        try {
+            chunks = rpcBatchClient.callBatch(calls, RpcDecoders.SIGNATURE_STATUSES);
+        } catch (IOException e) {
+            throw new RuntimeException("getSignatureStatuses failed: " + e.getMessage(), e);
+        }
+        
+        Map<String, SignatureStatus> statuses = new HashMap<>();
+        for (int c = 0; c < chunks.size(); c++) {
+            List<SignatureStatus> values = chunks.get(c);
+            int offset = c * MAX_SIGNATURES_PER_REQUEST;
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i) != null) {
+                    statuses.put(signatures.get(offset + i), values.get(i));
                 }
             }
-            
-            log.info("No token account found for wallet: {}", walletAddress);
-            return 0.0;
-            
-        } catch (Exception e) {
-            log.error("Error fetching real token balance for wallet {}: {}", walletAddress, e.getMessage());
-            return 0.0;
         }
+        return statuses;
+    }
+    
+    /**
+     * List finalized signatures touching an address, newest first.
+     * @param before Start searching backwards from this signature (null for the newest)
+     * @param until Stop at this signature, which is not included (null for none)
+     * @param limit At most 1000
+     */
+    public List<SignatureInfo> getSignaturesForAddress(String address, String before, String until, int limit) {
+        Map<String, Object> options = new HashMap<>();
+        options.put("limit", Math.min(limit, MAX_SIGNATURES_PER_PAGE));
+        options.put("commitment", "finalized");
+        if (before != null) {
+            options.put("before", before);
+        }
+        if (until != null) {
+            options.put("until", until);
+        }
+        
+        try {
+            List<SignatureInfo> signatures = rpcBatchClient.call("getSignaturesForAddress", List.of(address, options),
+                RpcDecoders.SIGNATURE_INFOS);
+            return signatures != null ? signatures : List.of();
+        } catch (IOException e) {
+            throw new RuntimeException("getSignaturesForAddress failed: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Fetch finalized transactions in one batched request and return, for each, the change in LLL
+     * base units of every token account it touched. Entries are null for transactions the node
+     * does not have yet.
+     */
+    public List<Map<String, Long>> getTokenBalanceDeltas(List<String> signatures) {
+        Map<String, Object> options = Map.of(
+            "encoding", "jsonParsed",
+            "commitment", "finalized",
+            "maxSupportedTransactionVersion", 0);
+        List<SolanaRpcBatchClient.RpcCall> calls = new ArrayList<>();
+        for (String signature : signatures) {
+            calls.add(new SolanaRpcBatchClient.RpcCall("getTransaction", List.of(signature, options)));
+        }
+        
+        try {
+            return rpcBatchClient.callBatch(calls, tokenBalanceDeltaDecoder);
+        } catch (IOException e) {
+            throw new RuntimeException("getTransaction failed: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Current block height at the given commitment
+     */
+    public long getBlockHeight(String commitment) {
+        try {
+            Long height = rpcBatchClient.call("getBlockHeight", List.of(Map.of("commitment", commitment)),
+                RpcDecoders.LONG_VALUE);
+            if (height == null) {
+                throw new RuntimeException("No block height in response");
+            }
+            return height;
+        } catch (IOException e) {
+            throw new RuntimeException("getBlockHeight failed: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Convert raw token base units to LLL
+     */
+    public double toTokenAmount(long baseUnits) {
+        return baseUnits / Math.pow(10, TOKEN_DECIMALS);
+    }
+    
+    /**
+     * Convert LLL to raw token base units
+     */
+    public long toBaseUnits(double amount) {
+        return Math.round(amount * Math.pow(10, TOKEN_DECIMALS));
     }
     
     /**
@@ -491,94 +1097,83 @@ public class SolanaService {
      * Get staking information
      */
     public Map<String, Object> getStakingInfo(String walletAddress) {
-        Map<String, Object> info = new HashMap<>();
-        
+        return join(getStakingInfoAsync(walletAddress));
+    }
+    
+    /**
+     * Get staking information without blocking on the balance lookup
+     */
+    public CompletableFuture<Map<String, Object>> getStakingInfoAsync(String walletAddress) {
         // Get real token balance
-        Double balance = getTokenBalance(walletAddress);
-        info.put("lllBalance", balance);
-        
-        // For now, simulate staking info since we need the actual staking program
-        info.put("stakedAmount", simulateStakedAmount(walletAddress));
-        info.put("totalEarned", simulateTotalEarned(walletAddress));
-        info.put("estimatedRewards", simulateEstimatedRewards(walletAddress));
-        info.put("apy", 10.0); // 10% APY
-        
-        return info;
+        return getTokenBalanceAsync(walletAddress).thenApply(balance -> {
+            Map<String, Object> info = new HashMap<>();
+            info.put("lllBalance", balance);
+            
+            // For now, simulate staking info since we need the actual staking program
+            info.put("stakedAmount", simulateStakedAmount(walletAddress));
+            info.put("totalEarned", simulateTotalEarned(walletAddress));
+            info.put("estimatedRewards", simulateEstimatedRewards(walletAddress));
+            info.put("apy", 10.0); // 10% APY
+            
+            return info;
+        });
     }
     
     // Helper methods
     
-    private Double parseTokenBalanceFromBase64(String base64Data) {
+    /**
+     * Wait for a future, rethrowing its failure unwrapped
+     */
+    private static <T> T join(CompletableFuture<T> future) {
         try {
-            byte[] decoded = Base64.getDecoder().decode(base64Data);
-            if (decoded.length >= 8) {
-                // Token account data structure: first 8 bytes are the balance
-                long balance = 0;
-                for (int i = 0; i < 8; i++) {
-                    balance |= ((long) (decoded[i] & 0xFF)) << (i * 8);
-                }
-                // Convert to decimal (LLL has 9 decimals)
-                return balance / Math.pow(10, 9);
-            }
-        } catch (Exception e) {
-            log.error("Error parsing token balance from base64: {}", e.getMessage());
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage(), cause);
         }
-        return 0.0;
     }
     
-    private Double parseTokenAmount(String amount, Double decimals) {
-        try {
-            return Long.parseLong(amount) / Math.pow(10, decimals);
-        } catch (Exception e) {
-            log.error("Error parsing token amount: {}", e.getMessage());
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
         }
-        return 0.0;
+        return e;
     }
     
-    private JsonNode callSolanaRPC(String method, Object params) {
+    /**
+     * Send many RPC calls as one JSON-RPC batch; decoded results are returned in call order (null on failure)
+     */
+    private <T> List<T> callSolanaRPCBatch(List<SolanaRpcBatchClient.RpcCall> calls, RpcDecoder<T> decoder) {
         try {
-            Map<String, Object> request = new HashMap<>();
-            request.put("jsonrpc", "2.0");
-            request.put("id", 1);
-            request.put("method", method);
-            request.put("params", params);
-            
-            String jsonRequest = objectMapper.writeValueAsString(request);
-            
-            RequestBody body = RequestBody.create(jsonRequest, MediaType.get("application/json"));
-            Request httpRequest = new Request.Builder()
-                .url(rpcUrl)
-                .post(body)
-                .build();
-            
-            try (Response response = httpClient.newCall(httpRequest).execute()) {
-                if (response.body() != null) {
-                    String responseBody = response.body().string();
-                    return objectMapper.readTree(responseBody);
-                }
-            }
-            
+            return rpcBatchClient.callBatch(calls, decoder);
         } catch (IOException e) {
-            log.error("Error calling Solana RPC: {}", e.getMessage());
+            log.error("Error calling Solana RPC batch of {} calls: {}", calls.size(), e.getMessage());
         }
         
-        return objectMapper.createObjectNode();
+        List<T> empty = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            empty.add(null);
+        }
+        return empty;
     }
     
     // Simulation methods (for fallback)
     
-    private Double simulateTokenBalance(String walletAddress) {
-        // Check if this is one of the real wallets
-        if ("DmpJsyNToL3i9cKoCZtT88nYLABdKNvfy2X8bpxDYZehs".equals(walletAddress)) {
-            return 100.0; // Real balance
+    private CompletableFuture<String> simulatedTransferAsync(String fromWallet, String toWallet, Double amount) {
+        try {
+            return CompletableFuture.completedFuture(simulatedTransfer(fromWallet, toWallet, amount));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        if ("5M38wf2Uruu9cKoCZtT88nYLABdKNvfy2X8bpxDYZehs".equals(walletAddress)) {
-            return 100.0; // Real balance
+    }
+    
+    private String simulatedTransfer(String fromWallet, String toWallet, Double amount) {
+        try {
+            return simulatedLedger.transfer(fromWallet, toWallet, toBaseUnits(amount));
+        } catch (RuntimeException e) {
+            log.error("Simulated transfer from {} to {} failed: {}", fromWallet, toWallet, e.getMessage());
+            throw new RuntimeException("Failed to transfer tokens: " + e.getMessage());
         }
-        
-        // For other wallets, simulate
-        int hash = walletAddress.hashCode();
-        return Math.abs(hash % 10000) + 1000.0; // Random balance between 1000-11000
     }
     
     private Double simulateStakedAmount(String walletAddress) {
@@ -601,4 +1196,36 @@ public class SolanaService {
         String hash = String.valueOf((action + walletAddress + amount + timestamp).hashCode());
         return "real_tx_" + Math.abs(hash.hashCode()) + "_" + timestamp.substring(timestamp.length() - 6);
     }
+    
+    /**
+     * A signed transfer that has not been sent yet
+     */
+    public static final class PreparedTransfer {
+        private final String signature;
+        private final long lastValidBlockHeight;
+        private final Supplier<String> sender;
+        
+        private PreparedTransfer(String signature, long lastValidBlockHeight, Supplier<String> sender) {
+            this.signature = signature;
+            this.lastValidBlockHeight = lastValidBlockHeight;
+            this.sender = sender;
+        }
+        
+        /**
+         * The signature the transfer will have on chain
+         */
+        public String signature() {
+            return signature;
+        }
+        
+        /**
+         * The transfer cannot land once the finalized block height is past this (0 when simulated)
+         */
+        public long lastValidBlockHeight() {
+            return lastValidBlockHeight;
+        }
+    }
+    
+    private record SignedTransaction(String signature, String base64, BlockhashCache.CachedBlockhash blockhash) {
+    }
 }
@@ -0,0 +1,263 @@
+package com.lll.futures.service;
+
+import com.lll.futures.event.TransactionSubmittedEvent;
+import com.lll.futures.model.TxConfirmationStatus;
+import com.lll.futures.repository.OrderRepository;
+import com.lll.futures.repository.RewardRepository;
+import com.lll.futures.service.solana.RpcPriority;
+import com.lll.futures.service.solana.SignatureStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks submitted transfers until they are confirmed, fail or expire.
+ *
+ * Pending signatures are polled with getSignatureStatuses (256 per call, all in one batched
+ * request). The poll interval starts short and doubles while nothing changes, and the poller
+ * stops when nothing is pending. A transfer is only resent once the finalized block height has
+ * passed its lastValidBlockHeight and a search of the ledger history does not find it, so the
+ * original can no longer land and the resend cannot pay twice. Outcomes are written to the owning order or reward; since the owner may still be
+ * in an uncommitted transaction, delivery is retried until it succeeds or times out.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionConfirmationTracker {
+    
+    private final SolanaService solanaService;
+    private final OrderRepository orderRepository;
+    private final RewardRepository rewardRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${solana.confirmation.min-poll-interval-ms:500}")
+    private long minPollIntervalMs;
+    
+    @Value("${solana.confirmation.max-poll-interval-ms:5000}")
+    private long maxPollIntervalMs;
+    
+    @Value("${solana.confirmation.max-resends:3}")
+    private int maxResends;
+    
+    @Value("${solana.confirmation.delivery-timeout-ms:600000}")
+    private long deliveryTimeoutMs;
+    
+    // Keyed by the current signature (changes on resend)
+    private final Map<String, TrackedTransaction> pending = new ConcurrentHashMap<>();
+    // Keyed by the original signature stored on the owning record
+    private final Map<String, Outcome> undelivered = new ConcurrentHashMap<>();
+    
+    private ScheduledExecutorService poller;
+    private boolean pollScheduled;
+    private long pollIntervalMs;
+    
+    @PostConstruct
+    public void init() {
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tx-confirmation-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+    
+    @EventListener
+    public void onTransactionSubmitted(TransactionSubmittedEvent event) {
+        pending.put(event.signature(), new TrackedTransaction(event.signature(), event.signature(),
+            event.lastValidBlockHeight(), event.resender(), 0));
+        wake();
+    }
+    
+    /**
+     * Whether a signature is waiting for confirmation
+     */
+    public boolean isTracking(String signature) {
+        return pending.containsKey(signature);
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    private synchronized void wake() {
+        pollIntervalMs = minPollIntervalMs;
+        if (!pollScheduled) {
+            pollScheduled = true;
+            poller.schedule(this::poll, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @SuppressWarnings("try")
+    private void poll() {
+        boolean progress = false;
+        try (RpcPriority.Scope ignored = RpcPriority.SETTLEMENT.enter()) {
+            progress = checkPending();
+        } catch (Exception e) {
+            log.warn("Confirmation poll failed: {}", e.getMessage());
+        }
+        deliverOutcomes();
+        
+        synchronized (this) {
+            if (pending.isEmpty() && undelivered.isEmpty()) {
+                pollScheduled = false;
+                return;
+            }
+            pollIntervalMs = progress ? minPollIntervalMs : Math.min(pollIntervalMs * 2, maxPollIntervalMs);
+            poller.schedule(this::poll, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * @return true if any transaction was resolved or resent
+     */
+    private boolean checkPending() {
+        if (pending.isEmpty()) {
+            return false;
+        }
+        
+        List<String> signatures = new ArrayList<>(pending.keySet());
+        Map<String, SignatureStatus> statuses = solanaService.getSignatureStatuses(signatures);
+        
+        boolean progress = false;
+        Long finalizedHeight = null;
+        List<TrackedTransaction> expired = new ArrayList<>();
+        for (String signature : signatures) {
+            TrackedTransaction tx = pending.get(signature);
+            if (tx == null) {
+                continue;
+            }
+            
+            SignatureStatus status = statuses.get(signature);
+            if (status != null) {
+                progress |= resolveLanded(tx, status);
+            } else {
+                // Unknown to the cluster: only act once its blockhash can no longer be used
+                if (finalizedHeight == null) {
+                    finalizedHeight = solanaService.getBlockHeight("finalized");
+                }
+                if (finalizedHeight > tx.lastValidBlockHeight()) {
+                    expired.add(tx);
+                }
+            }
+        }
+        
+        if (!expired.isEmpty()) {
+            // A transfer that landed but has aged out of the recent status cache also looks unknown
+            // (e.g. after an RPC outage or a slow poll), so search the ledger history before resending
+            Map<String, SignatureStatus> history = solanaService.getSignatureStatuses(
+                expired.stream().map(TrackedTransaction::signature).toList(), true);
+            for (TrackedTransaction tx : expired) {
+                SignatureStatus status = history.get(tx.signature());
+                if (status == null) {
+                    resendOrExpire(tx);
+                    progress = true;
+                } else {
+                    progress |= resolveLanded(tx, status);
+                }
+            }
+        }
+        return progress;
+    }
+    
+    /**
+     * Resolve a transaction the cluster knows about, once it is confirmed or has failed
+     * @return true if it was resolved
+     */
+    private boolean resolveLanded(TrackedTransaction tx, SignatureStatus status) {
+        if (status.failed()) {
+            resolve(tx, TxConfirmationStatus.FAILED);
+            return true;
+        }
+        if (status.isConfirmed()) {
+            resolve(tx, TxConfirmationStatus.CONFIRMED);
+            return true;
+        }
+        return false;
+    }
+    
+    private void resendOrExpire(TrackedTransaction tx) {
+        if (tx.resends() >= maxResends) {
+            log.error("Transaction {} expired after {} resends", tx.originalSignature(), tx.resends());
+            resolve(tx, TxConfirmationStatus.EXPIRED);
+            return;
+        }
+        
+        pending.remove(tx.signature());
+        try {
+            TransactionSubmittedEvent.Submission submission = tx.resender().resend();
+            log.warn("Transaction {} expired unconfirmed (last valid block height {}), resent as {} with blockhash {}",
+                tx.signature(), tx.lastValidBlockHeight(), submission.signature(), submission.blockhash());
+            pending.put(submission.signature(), new TrackedTransaction(tx.originalSignature(), submission.signature(),
+                submission.lastValidBlockHeight(), tx.resender(), tx.resends() + 1));
+        } catch (Exception e) {
+            log.error("Resend of transaction {} failed: {}", tx.originalSignature(), e.getMessage());
+            // Keep the expired entry so the next poll tries again until resends run out
+            pending.put(tx.signature(), new TrackedTransaction(tx.originalSignature(), tx.signature(),
+                tx.lastValidBlockHeight(), tx.resender(), tx.resends() + 1));
+        }
+    }
+    
+    private void resolve(TrackedTransaction tx, TxConfirmationStatus status) {
+        pending.remove(tx.signature());
+        log.info("Transaction {} {}", tx.signature(), status);
+        undelivered.put(tx.originalSignature(), new Outcome(tx.originalSignature(), tx.signature(), status,
+            System.currentTimeMillis() + deliveryTimeoutMs));
+    }
+    
+    private void deliverOutcomes() {
+        long now = System.currentTimeMillis();
+        Iterator<Outcome> outcomes = undelivered.values().iterator();
+        while (outcomes.hasNext()) {
+            Outcome outcome = outcomes.next();
+            try {
+                if (recordOutcome(outcome) || now > outcome.deliverBefore()) {
+                    outcomes.remove();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to record outcome of transaction {}: {}", outcome.originalSignature(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Update the order or reward that owns a transfer
+     * @return false if no record references the signature (yet)
+     */
+    private boolean recordOutcome(Outcome outcome) {
+        LocalDateTime now = LocalDateTime.now();
+        // Written in place: the owner's status may be changing concurrently (e.g. an order settling,
+        // or a reward going from SENDING to COMPLETED), and a whole-entity save would revert it
+        Integer updated = transactionTemplate.execute(status ->
+            orderRepository.recordEscrowOutcome(outcome.originalSignature(), outcome.signature(), outcome.status(), now)
+                + orderRepository.recordPayoutOutcome(outcome.originalSignature(), outcome.signature(), outcome.status(), now)
+                + rewardRepository.recordTransferOutcome(outcome.originalSignature(), outcome.signature(), outcome.status(), now));
+        return updated != null && updated > 0;
+    }
+    
+    private record TrackedTransaction(String originalSignature, String signature, long lastValidBlockHeight,
+                                      TransactionSubmittedEvent.Resender resender, int resends) {
+    }
+    
+    private record Outcome(String originalSignature, String signature, TxConfirmationStatus status,
+                           long deliverBefore) {
+    }
+}
@@ -0,0 +1,423 @@
+package com.lll.futures.service;
+
+import com.lll.futures.service.solana.RpcPriority;
+import com.lll.futures.service.solana.SignatureStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory ledger of the vault's spendable balance, so payouts check solvency without an RPC.
+ *
+ * Balances are kept per vault shard, and each payout is reserved on the shard with the fewest
+ * transfers in flight that can cover it. The ledger starts from the on-chain balances and is
+ * reconciled on a schedule. Outflows reserve their amount with a compare-and-set on the shard's
+ * available balance before the transfer is sent, and stay counted against it until their
+ * signature is finalized (or fails) on-chain. Expected inflows (escrow into the vault) only
+ * become spendable once the chain shows them. Each reconciliation records the drift between
+ * the on-chain balances and what the ledger expected them to be.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VaultLedger {
+    
+    private final SolanaService solanaService;
+    private final VaultService vaultService;
+    
+    // Flows whose signature never finalizes (e.g. replaced by a resend) are dropped after this long
+    @Value("${app.vault.ledger.settle-timeout-ms:600000}")
+    private long settleTimeoutMs;
+    
+    // Waiting time for a shard's in-flight permit when every shard that could pay is busy
+    @Value("${app.vault.shard-acquire-timeout-ms:30000}")
+    private long shardAcquireTimeoutMs;
+    
+    // Per-shard balances in token base units, keyed by shard index
+    private final Map<Integer, ShardBalance> balances = new ConcurrentHashMap<>();
+    private final Map<String, Flow> unsettledOutflows = new ConcurrentHashMap<>();
+    private final Map<String, Flow> pendingInflows = new ConcurrentHashMap<>();
+    private final Object reconcileLock = new Object();
+    
+    private volatile LocalDateTime reconciledAt;
+    private volatile boolean seeded;
+    
+    /**
+     * Seed the ledger from chain once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        scheduledReconcile();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.vault.ledger.reconcile-interval-ms:60000}",
+               initialDelayString = "${app.vault.ledger.reconcile-interval-ms:60000}")
+    @SuppressWarnings("try")
+    public void scheduledReconcile() {
+        if (!vaultService.isConfigured()) {
+            return;
+        }
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Vault ledger reconciliation failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Reserve an outflow on the vault shard with the least outstanding work that can cover it
+     * @param amount Amount in LLL
+     * @return Reservation naming the shard that must sign the transfer
+     * @throws RuntimeException if no shard can cover it
+     */
+    public Reservation reserve(Double amount) {
+        if (!seeded) {
+            reconcile();
+        }
+        
+        long units = solanaService.toBaseUnits(amount);
+        // Snapshot load and headroom so the ordering is stable while transfers come and go
+        List<ShardLoad> candidates = new ArrayList<>();
+        for (VaultShard shard : vaultService.getShards()) {
+            long shardAvailable = balanceOf(shard).available.get();
+            if (shardAvailable >= units) {
+                candidates.add(new ShardLoad(shard, shard.getInFlight(), shardAvailable));
+            }
+        }
+        candidates.sort(Comparator.comparingInt(ShardLoad::inFlight)
+            .thenComparing(Comparator.comparingLong(ShardLoad::available).reversed()));
+        
+        for (ShardLoad candidate : candidates) {
+            if (!candidate.shard().tryAcquire()) {
+                continue;
+            }
+            Reservation reservation = reserveHeld(candidate.shard(), units);
+            if (reservation != null) {
+                return reservation;
+            }
+        }
+        
+        if (!candidates.isEmpty()) {
+            // Every shard that can pay is at its in-flight limit - wait for the least loaded one
+            VaultShard shard = candidates.get(0).shard();
+            try {
+                if (!shard.tryAcquire(shardAcquireTimeoutMs)) {
+                    throw new RuntimeException("All vault shards are busy, try again later");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for a vault shard", e);
+            }
+            Reservation reservation = reserveHeld(shard, units);
+            if (reservation != null) {
+                return reservation;
+            }
+        }
+        
+        log.error("Vault has insufficient balance! Available: {} LLL, Required: {} LLL",
+            getAvailableBalance(), amount);
+        throw new RuntimeException("Vault has insufficient balance. Available: "
+            + getAvailableBalance() + " LLL");
+    }
+    
+    /**
+     * Reserve an outflow on a specific shard, without waiting for it to have a free in-flight slot
+     * @return Empty if the shard is busy or cannot cover the amount
+     */
+    public Optional<Reservation> tryReserve(VaultShard shard, Double amount) {
+        if (!seeded || !shard.tryAcquire()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(reserveHeld(shard, solanaService.toBaseUnits(amount)));
+    }
+    
+    /**
+     * Take the amount from a shard whose permit is already held; gives the permit back on failure
+     */
+    private Reservation reserveHeld(VaultShard shard, long units) {
+        ShardBalance balance = balanceOf(shard);
+        while (true) {
+            long current = balance.available.get();
+            if (current < units) {
+                shard.release();
+                return null;
+            }
+            if (balance.available.compareAndSet(current, current - units)) {
+                balance.reserved.addAndGet(units);
+                return new Reservation(shard, units);
+            }
+        }
+    }
+    
+    /**
+     * The reserved transfer was sent; keep it counted until the chain reflects it
+     */
+    public void commit(Reservation reservation, String signature) {
+        if (!reservation.close()) {
+            return;
+        }
+        VaultShard shard = reservation.shard();
+        shard.release();
+        ShardBalance balance = balanceOf(shard);
+        balance.reserved.addAndGet(-reservation.units());
+        if (!solanaService.isRealIntegration()) {
+            // Simulated transfers settle immediately
+            synchronized (reconcileLock) {
+                balance.onChainBalance -= reservation.units();
+            }
+            return;
+        }
+        unsettledOutflows.merge(signature,
+            new Flow(shard.getIndex(), reservation.units(), System.currentTimeMillis()), Flow::plus);
+    }
+    
+    /**
+     * The reserved transfer was not sent; make the amount available again
+     */
+    public void release(Reservation reservation) {
+        if (!reservation.close()) {
+            return;
+        }
+        VaultShard shard = reservation.shard();
+        shard.release();
+        ShardBalance balance = balanceOf(shard);
+        balance.reserved.addAndGet(-reservation.units());
+        balance.available.addAndGet(reservation.units());
+    }
+    
+    /**
+     * A transfer into the primary vault was sent; it becomes spendable once the chain shows it
+     */
+    public void recordInflow(String signature, Double amount) {
+        recordInflow(vaultService.getPrimaryShard(), signature, amount);
+    }
+    
+    /**
+     * A transfer into a vault shard was sent; it becomes spendable once the chain shows it
+     */
+    public void recordInflow(VaultShard shard, String signature, Double amount) {
+        long units = solanaService.toBaseUnits(amount);
+        if (!solanaService.isRealIntegration()) {
+            ShardBalance balance = balanceOf(shard);
+            synchronized (reconcileLock) {
+                balance.onChainBalance += units;
+                balance.available.addAndGet(units);
+            }
+            return;
+        }
+        pendingInflows.merge(signature, new Flow(shard.getIndex(), units, System.currentTimeMillis()), Flow::plus);
+    }
+    
+    /**
+     * Re-read the on-chain shard balances and settle flows the chain now reflects
+     */
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            List<VaultShard> shards = vaultService.getShards();
+            Map<String, Flow> outflows = new HashMap<>(unsettledOutflows);
+            Map<String, Flow> inflows = new HashMap<>(pendingInflows);
+            
+            // Statuses are read before the balances, so a flow finalized here is certainly in them
+            Map<String, SignatureStatus> statuses = Map.of();
+            if (solanaService.isRealIntegration() && !(outflows.isEmpty() && inflows.isEmpty())) {
+                List<String> signatures = new ArrayList<>(outflows.keySet());
+                signatures.addAll(inflows.keySet());
+                statuses = solanaService.getSignatureStatuses(signatures);
+            }
+            long[] onChain = fetchOnChainBalances(shards);
+            
+            long now = System.currentTimeMillis();
+            long[] settledOut = new long[shards.size()];
+            long[] releasedOut = new long[shards.size()];
+            for (Map.Entry<String, Flow> outflow : outflows.entrySet()) {
+                Flow flow = outflow.getValue();
+                SignatureStatus status = statuses.get(outflow.getKey());
+                if (status != null && status.failed()) {
+                    releasedOut[flow.shard()] += flow.units();
+                } else if (isSettled(status, flow, now)) {
+                    settledOut[flow.shard()] += flow.units();
+                } else {
+                    continue;
+                }
+                unsettledOutflows.remove(outflow.getKey());
+            }
+            
+            long[] settledIn = new long[shards.size()];
+            for (Map.Entry<String, Flow> inflow : inflows.entrySet()) {
+                Flow flow = inflow.getValue();
+                SignatureStatus status = statuses.get(inflow.getKey());
+                if (status != null && status.failed()) {
+                    pendingInflows.remove(inflow.getKey());
+                } else if (isSettled(status, flow, now)) {
+                    settledIn[flow.shard()] += flow.units();
+                    pendingInflows.remove(inflow.getKey());
+                }
+            }
+            
+            for (VaultShard shard : shards) {
+                int i = shard.getIndex();
+                ShardBalance balance = balanceOf(shard);
+                long previous = balance.onChainBalance;
+                if (seeded) {
+                    balance.drift = onChain[i] - (previous - settledOut[i] + settledIn[i]);
+                    if (balance.drift != 0) {
+                        log.warn("Vault ledger drift on shard {}: {} LLL (on-chain {} LLL)", i,
+                            solanaService.toTokenAmount(balance.drift), solanaService.toTokenAmount(onChain[i]));
+                    }
+                }
+                
+                // Settled and failed outflows stop counting against the new on-chain balance
+                balance.available.addAndGet(onChain[i] - previous + settledOut[i] + releasedOut[i]);
+                balance.onChainBalance = onChain[i];
+            }
+            reconciledAt = LocalDateTime.now();
+            seeded = true;
+        }
+    }
+    
+    private boolean isSettled(SignatureStatus status, Flow flow, long now) {
+        if (status != null && "finalized".equals(status.confirmationStatus())) {
+            return true;
+        }
+        return now - flow.createdAt() > settleTimeoutMs;
+    }
+    
+    /**
+     * On-chain balance of every shard's token account, indexed by shard
+     */
+    private long[] fetchOnChainBalances(List<VaultShard> shards) {
+        long[] onChain = new long[shards.size()];
+        if (!solanaService.isRealIntegration()) {
+            for (VaultShard shard : shards) {
+                onChain[shard.getIndex()] = solanaService.getSimulatedLedger().getBalance(shard.getPublicKey());
+            }
+            return onChain;
+        }
+        
+        List<String> tokenAccounts = new ArrayList<>();
+        for (VaultShard shard : shards) {
+            tokenAccounts.add(solanaService.deriveTokenAccountAddress(shard.getPublicKey()));
+        }
+        Map<String, Long> amounts = solanaService.getTokenAccountAmounts(tokenAccounts);
+        for (VaultShard shard : shards) {
+            String tokenAccount = tokenAccounts.get(shard.getIndex());
+            Long amount = amounts.get(tokenAccount);
+            if (amount == null && shard.getIndex() == 0) {
+                throw new RuntimeException("Vault token account " + tokenAccount + " not found");
+            }
+            // A new shard has no token account until it is first funded
+            onChain[shard.getIndex()] = amount != null ? amount : 0L;
+        }
+        return onChain;
+    }
+    
+    private ShardBalance balanceOf(VaultShard shard) {
+        return balances.computeIfAbsent(shard.getIndex(), i -> new ShardBalance());
+    }
+    
+    // Views in LLL, summed over all shards unless a shard is given
+    
+    public Double getAvailableBalance() {
+        return solanaService.toTokenAmount(balances.values().stream().mapToLong(b -> b.available.get()).sum());
+    }
+    
+    public Double getAvailableBalance(VaultShard shard) {
+        return solanaService.toTokenAmount(balanceOf(shard).available.get());
+    }
+    
+    public Double getOnChainBalance() {
+        return solanaService.toTokenAmount(balances.values().stream().mapToLong(b -> b.onChainBalance).sum());
+    }
+    
+    public Double getOnChainBalance(VaultShard shard) {
+        return solanaService.toTokenAmount(balanceOf(shard).onChainBalance);
+    }
+    
+    public Double getReservedAmount() {
+        return solanaService.toTokenAmount(balances.values().stream().mapToLong(b -> b.reserved.get()).sum());
+    }
+    
+    public Double getUnsettledOutflows() {
+        return solanaService.toTokenAmount(unsettledOutflows.values().stream().mapToLong(Flow::units).sum());
+    }
+    
+    public Double getPendingInflows() {
+        return solanaService.toTokenAmount(pendingInflows.values().stream().mapToLong(Flow::units).sum());
+    }
+    
+    public Double getDrift() {
+        return solanaService.toTokenAmount(balances.values().stream().mapToLong(b -> b.drift).sum());
+    }
+    
+    public Double getDrift(VaultShard shard) {
+        return solanaService.toTokenAmount(balanceOf(shard).drift);
+    }
+    
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+    
+    public boolean isSeeded() {
+        return seeded;
+    }
+    
+    /**
+     * An amount held against the available balance until committed or released
+     */
+    public static final class Reservation {
+        private final VaultShard shard;
+        private final long units;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        
+        private Reservation(VaultShard shard, long units) {
+            this.shard = shard;
+            this.units = units;
+        }
+        
+        /**
+         * The shard the transfer must be sent from
+         */
+        public VaultShard shard() {
+            return shard;
+        }
+        
+        long units() {
+            return units;
+        }
+        
+        private boolean close() {
+            return open.compareAndSet(true, false);
+        }
+    }
+    
+    private static final class ShardBalance {
+        private final AtomicLong available = new AtomicLong();
+        private final AtomicLong reserved = new AtomicLong();
+        private volatile long onChainBalance;
+        private volatile long drift;
+    }
+    
+    private record ShardLoad(VaultShard shard, int inFlight, long available) {
+    }
+    
+    private record Flow(int shard, long units, long createdAt) {
+        Flow plus(Flow other) {
+            return new Flow(shard, units + other.units, Math.min(createdAt, other.createdAt));
+        }
+    }
+}
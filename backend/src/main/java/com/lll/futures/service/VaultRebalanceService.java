@@ -0,0 +1,111 @@
+package com.lll.futures.service;
+
+import com.lll.futures.service.solana.RpcPriority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps vault shard balances even, so payouts can keep spreading across all shards.
+ * Moves tokens from the fullest shard to the emptiest one while they differ from the
+ * mean by more than the configured fraction.
+ *
+ * Each node's vault ledger only sees its own transfers until they finalize, so a scheduled
+ * rebalance only runs on the node that holds the rebalance lease.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VaultRebalanceService {
+    
+    private static final String LEASE_NAME = "vault-rebalance";
+    
+    private final VaultService vaultService;
+    private final VaultLedger vaultLedger;
+    private final SolanaService solanaService;
+    private final SchedulerLeaseService schedulerLeaseService;
+    
+    @Value("${app.vault.rebalance.enabled:true}")
+    private boolean enabled;
+    
+    // Rebalance when a shard is further than this fraction of the mean balance from it
+    @Value("${app.vault.rebalance.threshold:0.2}")
+    private double threshold;
+    
+    // Smallest transfer worth sending
+    @Value("${app.vault.rebalance.min-amount:100}")
+    private double minAmount;
+    
+    @Value("${app.vault.rebalance.interval-ms:300000}")
+    private long intervalMs;
+    
+    @Scheduled(fixedDelayString = "${app.vault.rebalance.interval-ms:300000}",
+               initialDelayString = "${app.vault.rebalance.interval-ms:300000}")
+    @SuppressWarnings("try")
+    public void scheduledRebalance() {
+        if (!enabled || vaultService.getShards().size() < 2 || !vaultLedger.isSeeded()) {
+            return;
+        }
+        try (RpcPriority.Scope ignored = RpcPriority.BACKGROUND.enter()) {
+            // Held across a few missed runs, so a brief stall does not hand rebalancing to another node
+            if (!schedulerLeaseService.tryAcquire(LEASE_NAME, Duration.ofMillis(intervalMs * 3))) {
+                log.debug("Another node holds the vault rebalance lease, skipping");
+                return;
+            }
+            rebalance();
+        } catch (Exception e) {
+            log.error("Vault rebalancing failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Move one chunk from the fullest shard to the emptiest.
+     * Only one transfer per run: the destination's share counts once the transfer finalizes.
+     * @return Whether a transfer was sent
+     */
+    public boolean rebalance() {
+        List<VaultShard> shards = vaultService.getShards();
+        double mean = vaultLedger.getAvailableBalance() / shards.size();
+        VaultShard fullest = shards.stream()
+            .max(Comparator.comparingDouble(vaultLedger::getAvailableBalance)).orElseThrow();
+        VaultShard emptiest = shards.stream()
+            .min(Comparator.comparingDouble(vaultLedger::getAvailableBalance)).orElseThrow();
+        
+        double surplus = vaultLedger.getAvailableBalance(fullest) - mean;
+        double deficit = mean - vaultLedger.getAvailableBalance(emptiest);
+        if (mean <= 0 || Math.max(surplus, deficit) <= threshold * mean) {
+            return false;
+        }
+        
+        double amount = Math.floor(Math.min(surplus, deficit));
+        return amount >= minAmount && move(fullest, emptiest, amount);
+    }
+    
+    private boolean move(VaultShard from, VaultShard to, double amount) {
+        // Skip a shard that is busy paying out; the next run picks it up
+        Optional<VaultLedger.Reservation> reservation = vaultLedger.tryReserve(from, amount);
+        if (reservation.isEmpty()) {
+            log.debug("Vault shard {} is busy, skipping rebalance", from.getIndex());
+            return false;
+        }
+        
+        try {
+            String txSignature = solanaService.transferSPLToken(from, to.getPublicKey(), amount);
+            vaultLedger.commit(reservation.get(), txSignature);
+            vaultLedger.recordInflow(to, txSignature, amount);
+            log.info("Rebalanced {} LLL from vault shard {} to shard {} - TX: {}",
+                amount, from.getIndex(), to.getIndex(), txSignature);
+            return true;
+        } catch (RuntimeException e) {
+            vaultLedger.release(reservation.get());
+            throw e;
+        }
+    }
+}
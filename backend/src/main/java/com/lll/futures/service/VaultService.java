@@ -1,20 +1,20 @@
 package com.lll.futures.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.p2p.solanaj.core.Account;
 
 import jakarta.annotation.PostConstruct;
-import java.security.KeyFactory;
-import java.security.PrivateKey;
 import java.security.Security;
-import java.security.Signature;
-import java.security.spec.EdECPrivateKeySpec;
-import java.security.spec.NamedParameterSpec;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class VaultService {
     
@@ -34,17 +34,69 @@ public class VaultService {
     @Value("${app.wallet.encryption-key}")
     private String encryptionKey;
     
+    // Additional vault keypairs, encrypted the same way as user wallet keys; each has its own token account
+    @Value("${app.vault.shard-keypairs:}")
+    private List<String> shardKeypairs;
+    
+    // Transfers each shard may be building and sending at once
+    @Value("${app.vault.shard-max-in-flight:8}")
+    private int shardMaxInFlight;
+    
+    private final WalletService walletService;
+    
     // Vault private key as byte array (Solana uses 64-byte keypairs)
     private byte[] vaultPrivateKeyBytes;
     
+    // Shard 0 is the primary vault; escrow is paid into it
+    private volatile List<VaultShard> shards = List.of();
+    
     /**
      * Initialize vault on application startup
      */
     @PostConstruct
     public void init() {
         initializePrivateKey();
-        initializeEd25519Keys();
-        log.info("Vault service initialized - Public Key: {}", vaultPublicKey);
+        initializeShards();
+        log.info("Vault service initialized - Public Key: {}, shards: {}", vaultPublicKey, shards.size());
+    }
+    
+    /**
+     * Build the vault shards: the primary vault followed by the configured shard keypairs
+     */
+    private void initializeShards() {
+        List<VaultShard> built = new ArrayList<>();
+        built.add(new VaultShard(0, vaultPublicKey, vaultPrivateKeyBytes, shardMaxInFlight));
+        
+        if (shardKeypairs != null) {
+            for (String encrypted : shardKeypairs) {
+                if (encrypted == null || encrypted.isBlank()) {
+                    continue;
+                }
+                byte[] keypair = Base64.getDecoder().decode(walletService.decryptPrivateKey(encrypted.trim()));
+                if (keypair.length != 64) {
+                    throw new IllegalStateException("Vault shard keypair " + built.size()
+                        + " must be 64 bytes, got " + keypair.length);
+                }
+                String publicKey = new Account(keypair).getPublicKey().toBase58();
+                built.add(new VaultShard(built.size(), publicKey, keypair, shardMaxInFlight));
+                log.info("Vault shard {} initialized - Public Key: {}", built.size() - 1, publicKey);
+            }
+        }
+        shards = List.copyOf(built);
+    }
+    
+    /**
+     * All vault shards, primary first
+     */
+    public List<VaultShard> getShards() {
+        return shards;
+    }
+    
+    /**
+     * The primary vault shard (receives escrow)
+     */
+    public VaultShard getPrimaryShard() {
+        return shards.get(0);
     }
     
     /**
@@ -120,53 +172,12 @@ public class VaultService {
     }
     
     /**
-     * Initialize Ed25519 keys from the vault keypair
-     * Just validates the keypair is properly initialized
-     */
-    private void initializeEd25519Keys() {
-        if (vaultPrivateKeyBytes == null || vaultPrivateKeyBytes.length != 64) {
-            log.error("Vault keypair is not properly initialized (expected 64 bytes, got {})", 
-                vaultPrivateKeyBytes != null ? vaultPrivateKeyBytes.length : 0);
-        } else {
-            log.info("Vault keypair bytes initialized (64 bytes) - ready for signing");
-        }
-    }
-    
-    /**
-     * Sign a transaction with the vault's Ed25519 private key
+     * Sign a transaction with the primary vault's Ed25519 private key (see VaultShard.sign)
      * @param data The transaction data to sign
      * @return The signature bytes
      */
     public byte[] signTransaction(byte[] data) {
-        try {
-            if (vaultPrivateKeyBytes == null || vaultPrivateKeyBytes.length != 64) {
-                log.error("Vault keypair not initialized");
-                throw new RuntimeException("Vault signing not initialized");
-            }
-            
-            // Extract private key bytes (first 32 bytes of the 64-byte keypair)
-            byte[] privateKeyBytes = Arrays.copyOfRange(vaultPrivateKeyBytes, 0, 32);
-            
-            // Create Ed25519 private key spec
-            KeyFactory keyFactory = KeyFactory.getInstance("Ed25519", "BC");
-            EdECPrivateKeySpec privateKeySpec = new EdECPrivateKeySpec(
-                NamedParameterSpec.ED25519, privateKeyBytes
-            );
-            PrivateKey privateKey = keyFactory.generatePrivate(privateKeySpec);
-            
-            // Sign the transaction
-            Signature signature = Signature.getInstance("Ed25519", "BC");
-            signature.initSign(privateKey);
-            signature.update(data);
-            byte[] signatureBytes = signature.sign();
-            
-            log.debug("Signed transaction with Ed25519 (signature length: {})", signatureBytes.length);
-            return signatureBytes;
-            
-        } catch (Exception e) {
-            log.error("Failed to sign transaction with vault key: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to sign transaction", e);
-        }
+        return getPrimaryShard().sign(data);
     }
     
     /**
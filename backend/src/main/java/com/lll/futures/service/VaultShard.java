@@ -0,0 +1,106 @@
+package com.lll.futures.service;
+
+import com.lll.futures.service.solana.TransactionSigner;
+import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
+import org.bouncycastle.crypto.signers.Ed25519Signer;
+import org.p2p.solanaj.core.Account;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One vault keypair and its token account.
+ *
+ * Transfers out of the same token account write-lock it and serialize on-chain, so payouts are
+ * spread across shards. Each shard caps how many of its transfers are being built and sent at once.
+ *
+ * A shard signs its own transfers. The Ed25519 private key is expanded once, and each thread
+ * keeps its own signer since BouncyCastle signers are not thread-safe.
+ */
+public final class VaultShard implements TransactionSigner {
+
+    private final int index;
+    private final String publicKey;
+    private final byte[] keypair;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final Account account;
+    private final Ed25519PrivateKeyParameters signingKey;
+    private final ThreadLocal<Ed25519Signer> signers;
+
+    VaultShard(int index, String publicKey, byte[] keypair, int maxInFlight) {
+        this.index = index;
+        this.publicKey = publicKey;
+        this.keypair = keypair;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        boolean valid = keypair != null && keypair.length == 64;
+        this.account = valid ? new Account(keypair) : null;
+        this.signingKey = valid ? new Ed25519PrivateKeyParameters(keypair, 0) : null;
+        this.signers = ThreadLocal.withInitial(() -> {
+            Ed25519Signer signer = new Ed25519Signer();
+            signer.init(true, signingKey);
+            return signer;
+        });
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * The 64-byte Solana keypair (private key + public key) that signs this shard's transfers
+     */
+    public byte[] getKeypair() {
+        return keypair;
+    }
+
+    @Override
+    public Account getAccount() {
+        if (account == null) {
+            throw new RuntimeException("Vault shard " + index + " keypair not properly initialized");
+        }
+        return account;
+    }
+
+    /**
+     * Sign with this shard's key, reusing the expanded key and this thread's signer
+     */
+    @Override
+    public byte[] sign(byte[] message) {
+        if (signingKey == null) {
+            throw new RuntimeException("Vault shard " + index + " keypair not properly initialized");
+        }
+        Ed25519Signer signer = signers.get();
+        signer.reset();
+        signer.update(message, 0, message.length);
+        return signer.generateSignature();
+    }
+
+    /**
+     * Transfers currently holding one of this shard's permits
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    boolean tryAcquire(long timeoutMs) throws InterruptedException {
+        return permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    void release() {
+        permits.release();
+    }
+}
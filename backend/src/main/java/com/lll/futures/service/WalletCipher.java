@@ -0,0 +1,123 @@
+package com.lll.futures.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts wallet private keys at rest.
+ *
+ * Records are AES-256-GCM with a random 96-bit nonce each, stored as "v2:" + Base64(nonce || ciphertext || tag).
+ * Records without the prefix are the legacy AES/ECB format and are still readable so they can be migrated.
+ * Keys are derived from app.wallet.encryption-key once; Cipher instances are reused per thread.
+ */
+@Component
+@Slf4j
+public class WalletCipher {
+    
+    public static final String V2_PREFIX = "v2:";
+    
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final byte[] V2_KEY_LABEL = "lll-futures wallet key v2".getBytes(StandardCharsets.UTF_8);
+    
+    private final SecretKey key;
+    private final SecretKey legacyKey;
+    private final SecureRandom random = new SecureRandom();
+    
+    // Cipher is not thread-safe, but is cheap to re-init once created
+    private final ThreadLocal<Cipher> gcmCiphers = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+    private final ThreadLocal<Cipher> legacyCiphers = ThreadLocal.withInitial(() -> newCipher(LEGACY_TRANSFORMATION));
+    
+    public WalletCipher(@Value("${app.wallet.encryption-key:lll-futures-wallet-key-change-in-production}") String encryptionKey) {
+        try {
+            // The legacy format used the SHA-256 of the passphrase directly as the AES key
+            byte[] legacyKeyBytes = MessageDigest.getInstance("SHA-256")
+                .digest(encryptionKey.getBytes(StandardCharsets.UTF_8));
+            this.legacyKey = new SecretKeySpec(legacyKeyBytes, "AES");
+            
+            // The GCM key is a separate, labelled derivation of the same secret
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(legacyKeyBytes, "HmacSHA256"));
+            this.key = new SecretKeySpec(mac.doFinal(V2_KEY_LABEL), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive wallet encryption keys", e);
+        }
+    }
+    
+    /**
+     * Encrypt a private key in the current (v2) format
+     */
+    public String encrypt(String plaintext) {
+        try {
+            byte[] nonce = new byte[NONCE_LENGTH];
+            random.nextBytes(nonce);
+            
+            Cipher cipher = gcmCiphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+            byte[] input = plaintext.getBytes(StandardCharsets.UTF_8);
+            
+            ByteBuffer output = ByteBuffer.allocate(NONCE_LENGTH + cipher.getOutputSize(input.length));
+            output.put(nonce);
+            cipher.doFinal(ByteBuffer.wrap(input), output);
+            return V2_PREFIX + Base64.getEncoder().encodeToString(output.array());
+        
+        } catch (GeneralSecurityException e) {
+            log.error("Error encrypting private key: {}", e.getMessage());
+            throw new RuntimeException("Failed to encrypt private key", e);
+        }
+    }
+    
+    /**
+     * Decrypt a private key stored in either the v2 or the legacy format
+     */
+    public String decrypt(String encrypted) {
+        try {
+            if (!isLegacy(encrypted)) {
+                byte[] data = Base64.getDecoder().decode(encrypted.substring(V2_PREFIX.length()));
+                Cipher cipher = gcmCiphers.get();
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, NONCE_LENGTH));
+                byte[] decrypted = cipher.doFinal(data, NONCE_LENGTH, data.length - NONCE_LENGTH);
+                return new String(decrypted, StandardCharsets.UTF_8);
+            }
+            
+            Cipher cipher = legacyCiphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+            byte[] decrypted = cipher.doFinal(Base64.getDecoder().decode(encrypted));
+            return new String(decrypted, StandardCharsets.UTF_8);
+        
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.error("Error decrypting private key: {}", e.getMessage());
+            throw new RuntimeException("Failed to decrypt private key", e);
+        }
+    }
+    
+    /**
+     * Whether a stored value predates the v2 format and should be re-encrypted
+     */
+    public boolean isLegacy(String encrypted) {
+        return !encrypted.startsWith(V2_PREFIX);
+    }
+    
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher " + transformation + " is not available", e);
+        }
+    }
+}
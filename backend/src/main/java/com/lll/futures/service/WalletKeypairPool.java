@@ -0,0 +1,205 @@
+package com.lll.futures.service;
+
+import com.lll.futures.service.solana.Base58;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of pre-generated, already encrypted Solana keypairs, so signup does not pay for
+ * key generation and encryption on the request thread.
+ *
+ * A background thread fills the pool up to its size whenever it drops below the low watermark.
+ * When the pool is empty (e.g. a signup burst outran the refill) a keypair is generated inline.
+ * Pooled keypairs only live in memory; any left unclaimed at shutdown are simply discarded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletKeypairPool {
+    
+    // Initialize BouncyCastle provider for Ed25519
+    static {
+        if (Security.getProvider("BC") == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+    
+    private final WalletCipher walletCipher;
+    
+    @Value("${app.wallet.pool.enabled:true}")
+    private boolean enabled;
+    
+    // High watermark: the refill stops once the pool holds this many keypairs
+    @Value("${app.wallet.pool.size:1000}")
+    private int size;
+    
+    // The refill starts when the pool drops below this many keypairs
+    @Value("${app.wallet.pool.low-watermark:250}")
+    private int lowWatermark;
+    
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+    private final AtomicLong misses = new AtomicLong();
+    
+    private BlockingQueue<PooledKeypair> pool;
+    private ExecutorService refiller;
+    
+    @PostConstruct
+    public void init() {
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "wallet-keypair-refill");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        triggerRefill();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+    }
+    
+    /**
+     * Take a keypair from the pool, or generate one inline if the pool is empty
+     */
+    public PooledKeypair claim() {
+        PooledKeypair keypair = enabled ? pool.poll() : null;
+        if (pool.size() < lowWatermark) {
+            triggerRefill();
+        }
+        if (keypair != null) {
+            return keypair;
+        }
+        
+        if (enabled) {
+            misses.incrementAndGet();
+            log.debug("Wallet keypair pool empty, generating inline");
+        }
+        return generate();
+    }
+    
+    /**
+     * Safety net in case a refill stopped early (e.g. after an error)
+     */
+    @Scheduled(fixedDelayString = "${app.wallet.pool.check-interval-ms:30000}")
+    public void scheduledRefill() {
+        if (pool.size() < lowWatermark) {
+            triggerRefill();
+        }
+    }
+    
+    public int getAvailable() {
+        return pool.size();
+    }
+    
+    /**
+     * Claims that found the pool empty
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    private void triggerRefill() {
+        if (enabled && refilling.compareAndSet(false, true)) {
+            refiller.execute(this::refill);
+        }
+    }
+    
+    private void refill() {
+        int added = 0;
+        try {
+            while (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                if (!pool.offer(generate())) {
+                    break;
+                }
+                added++;
+            }
+        } catch (RuntimeException e) {
+            log.error("Wallet keypair pool refill failed: {}", e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+        log.debug("Wallet keypair pool refilled with {} keypairs ({} available)", added, pool.size());
+    }
+    
+    /**
+     * Generate a real Solana keypair using Ed25519 and encrypt it for storage
+     */
+    private PooledKeypair generate() {
+        try {
+            // Generate Ed25519 keypair
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("Ed25519", "BC");
+            keyPairGenerator.initialize(256, secureRandom);
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+            
+            // Get public key bytes
+            byte[] publicKeyBytes = keyPair.getPublic().getEncoded();
+            
+            // Extract raw public key (last 32 bytes of encoded format for Ed25519)
+            byte[] rawPublicKey;
+            if (publicKeyBytes.length >= 32) {
+                rawPublicKey = new byte[32];
+                System.arraycopy(publicKeyBytes, publicKeyBytes.length - 32, rawPublicKey, 0, 32);
+            } else {
+                rawPublicKey = publicKeyBytes;
+            }
+            
+            // Get private key bytes
+            byte[] privateKeyBytes = keyPair.getPrivate().getEncoded();
+            
+            // Extract raw private key material
+            byte[] rawPrivateKey;
+            if (privateKeyBytes.length >= 32) {
+                rawPrivateKey = new byte[32];
+                System.arraycopy(privateKeyBytes, privateKeyBytes.length - 32, rawPrivateKey, 0, 32);
+            } else {
+                rawPrivateKey = privateKeyBytes;
+            }
+            
+            // Solana uses 64-byte keypair format: private key (32 bytes) + public key (32 bytes)
+            byte[] solanaKeypair = new byte[64];
+            System.arraycopy(rawPrivateKey, 0, solanaKeypair, 0, 32);
+            System.arraycopy(rawPublicKey, 0, solanaKeypair, 32, 32);
+            
+            // Encode public key to Base58 (Solana address format)
+            String publicKeyBase58 = Base58.encode(rawPublicKey);
+            
+            // Encrypt the Base64 encoded keypair for storage
+            String encryptedPrivateKey = walletCipher.encrypt(Base64.getEncoder().encodeToString(solanaKeypair));
+            
+            log.debug("Generated Solana keypair - Public: {} (length: {})", publicKeyBase58, publicKeyBase58.length());
+            
+            return new PooledKeypair(publicKeyBase58, encryptedPrivateKey);
+        
+        } catch (Exception e) {
+            log.error("Error generating Solana keypair: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to generate Solana keypair", e);
+        }
+    }
+    
+    /**
+     * A keypair ready to store: Base58 public key and encrypted Base64 keypair
+     */
+    public record PooledKeypair(String publicKey, String encryptedPrivateKey) {
+    }
+}
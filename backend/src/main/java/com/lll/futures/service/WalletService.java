@@ -1,23 +1,26 @@
 package com.lll.futures.service;
 
 import com.lll.futures.model.UserWallet;
+import com.lll.futures.repository.OrderRepository;
+import com.lll.futures.repository.UserRepository;
+import com.lll.futures.repository.UserTokenBalanceRepository;
 import com.lll.futures.repository.UserWalletRepository;
+import com.lll.futures.service.solana.Base58;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.SecureRandom;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -25,21 +28,26 @@ import java.util.Optional;
 @Slf4j
 public class WalletService {
     
+    private static final int MIGRATION_BATCH_SIZE = 200;
+    
     private final UserWalletRepository userWalletRepository;
+    private final WalletCipher walletCipher;
+    private final WalletKeypairPool walletKeypairPool;
+    private final HdWalletService hdWalletService;
+    private final UserRepository userRepository;
+    private final UserTokenBalanceRepository userTokenBalanceRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
     
-    @Value("${app.wallet.encryption-key:lll-futures-wallet-key-change-in-production}")
-    private String encryptionKey;
+    @Value("${app.wallet.migration.enabled:true}")
+    private boolean migrationEnabled;
     
-    // Initialize BouncyCastle provider for Ed25519
-    static {
-        if (Security.getProvider("BC") == null) {
-            Security.addProvider(new BouncyCastleProvider());
-        }
-    }
+    @Value("${app.wallet.repair-public-keys:false}")
+    private boolean repairPublicKeysEnabled;
     
     /**
      * Create a new wallet for a user
-     * Generates a real Solana keypair
+     * Takes a real Solana keypair from the pre-generated pool
      */
     @Transactional
     public UserWallet createUserWallet(Long userId) {
@@ -51,22 +59,32 @@ public class WalletService {
                 return existing.get();
             }
             
-            // Generate a complete Solana keypair
-            KeyPairData keyPairData = generateSolanaKeypair();
+            if (hdWalletService.isEnabled()) {
+                // Only the public key and index are stored; the keypair is derived on demand
+                int index = hdWalletService.indexFor(userId);
+                UserWallet wallet = userWalletRepository.save(UserWallet.builder()
+                    .userId(userId)
+                    .publicKey(hdWalletService.derivePublicKey(index))
+                    .derivationIndex(index)
+                    .build());
+                
+                log.info("Created HD wallet for user {} with public key: {}", userId, wallet.getPublicKey());
+                return wallet;
+            }
             
-            // Encrypt the private key
-            String encryptedPrivateKey = encryptPrivateKey(keyPairData.privateKeyBase64);
+            // Claim a pre-generated, already encrypted Solana keypair
+            WalletKeypairPool.PooledKeypair keypair = walletKeypairPool.claim();
             
             // Save to database
             UserWallet wallet = UserWallet.builder()
                 .userId(userId)
-                .publicKey(keyPairData.publicKeyBase58)
-                .encryptedPrivateKey(encryptedPrivateKey)
+                .publicKey(keypair.publicKey())
+                .encryptedPrivateKey(keypair.encryptedPrivateKey())
                 .build();
             
             wallet = userWalletRepository.save(wallet);
             
-            log.info("Created wallet for user {} with public key: {}", userId, keyPairData.publicKeyBase58);
+            log.info("Created wallet for user {} with public key: {}", userId, keypair.publicKey());
             return wallet;
             
         } catch (Exception e) {
@@ -76,117 +94,158 @@ public class WalletService {
     }
     
     /**
-     * Internal class to hold keypair data
+     * Get the 64-byte Solana keypair (private key + public key) that signs for a wallet
      */
-    private static class KeyPairData {
-        String publicKeyBase58;
-        String privateKeyBase64;
-        
-        KeyPairData(String publicKeyBase58, String privateKeyBase64) {
-            this.publicKeyBase58 = publicKeyBase58;
-            this.privateKeyBase64 = privateKeyBase64;
+    public byte[] getWalletKeypair(UserWallet wallet) {
+        if (wallet.getDerivationIndex() != null) {
+            return hdWalletService.deriveKeypair(wallet.getDerivationIndex());
         }
+        return Base64.getDecoder().decode(decryptPrivateKey(wallet.getEncryptedPrivateKey()));
     }
     
     /**
-     * Generate a real Solana keypair using Ed25519
-     * Returns both public key (Base58) and private key (Base64 encoded keypair)
+     * Decrypt private key from database (current or legacy format)
      */
-    private KeyPairData generateSolanaKeypair() {
-        try {
-            // Generate Ed25519 keypair
-            SecureRandom secureRandom = new SecureRandom();
-            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("Ed25519", "BC");
-            keyPairGenerator.initialize(256, secureRandom);
-            KeyPair keyPair = keyPairGenerator.generateKeyPair();
-            
-            // Get public key bytes
-            byte[] publicKeyBytes = keyPair.getPublic().getEncoded();
-            
-            // Extract raw public key (last 32 bytes of encoded format for Ed25519)
-            byte[] rawPublicKey;
-            if (publicKeyBytes.length >= 32) {
-                rawPublicKey = new byte[32];
-                System.arraycopy(publicKeyBytes, publicKeyBytes.length - 32, rawPublicKey, 0, 32);
-            } else {
-                rawPublicKey = publicKeyBytes;
+    public String decryptPrivateKey(String encryptedPrivateKey) {
+        return walletCipher.decrypt(encryptedPrivateKey);
+    }
+    
+    /**
+     * Re-encrypt wallets still stored in the legacy AES/ECB format, a batch at a time
+     */
+    @Scheduled(fixedDelayString = "${app.wallet.migration.interval-ms:600000}",
+               initialDelayString = "${app.wallet.migration.initial-delay-ms:60000}")
+    public void migrateLegacyEncryption() {
+        if (!migrationEnabled) {
+            return;
+        }
+        
+        long afterId = 0;
+        int migrated = 0;
+        int changed = 0;
+        int failed = 0;
+        while (true) {
+            List<UserWallet> batch = userWalletRepository.findLegacyEncryptedAfter(afterId,
+                PageRequest.of(0, MIGRATION_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
             }
             
-            // Get private key bytes
-            byte[] privateKeyBytes = keyPair.getPrivate().getEncoded();
-            
-            // Extract raw private key material
-            byte[] rawPrivateKey;
-            if (privateKeyBytes.length >= 32) {
-                rawPrivateKey = new byte[32];
-                System.arraycopy(privateKeyBytes, privateKeyBytes.length - 32, rawPrivateKey, 0, 32);
-            } else {
-                rawPrivateKey = privateKeyBytes;
+            List<KeyUpdate> updates = new ArrayList<>();
+            for (UserWallet wallet : batch) {
+                afterId = wallet.getId();
+                try {
+                    String legacy = wallet.getEncryptedPrivateKey();
+                    String encrypted = walletCipher.encrypt(walletCipher.decrypt(legacy));
+                    updates.add(new KeyUpdate(wallet.getId(), legacy, encrypted));
+                } catch (RuntimeException e) {
+                    // Left as is (e.g. encrypted under another key); retried on the next run
+                    log.warn("Could not migrate wallet {} to v2 encryption: {}", wallet.getId(), e.getMessage());
+                    failed++;
+                }
             }
             
-            // Solana uses 64-byte keypair format: private key (32 bytes) + public key (32 bytes)
-            byte[] solanaKeypair = new byte[64];
-            System.arraycopy(rawPrivateKey, 0, solanaKeypair, 0, 32);
-            System.arraycopy(rawPublicKey, 0, solanaKeypair, 32, 32);
-            
-            // Encode public key to Base58 (Solana address format)
-            String publicKeyBase58 = Base58.encode(rawPublicKey);
-            
-            // Encode private keypair to Base64 for storage
-            String privateKeyBase64 = Base64.getEncoder().encodeToString(solanaKeypair);
-            
-            log.debug("Generated Solana keypair - Public: {} (length: {})", publicKeyBase58, publicKeyBase58.length());
-            
-            return new KeyPairData(publicKeyBase58, privateKeyBase64);
-            
-        } catch (Exception e) {
-            log.error("Error generating Solana keypair: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate Solana keypair", e);
+            // Only the key column is written, and only where it still holds the ciphertext read above,
+            // so a wallet updated meanwhile (e.g. repaired or purged) is not overwritten with stale fields
+            Integer replaced = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (KeyUpdate update : updates) {
+                    count += userWalletRepository.replaceEncryptedPrivateKey(
+                        update.id(), update.legacy(), update.encrypted());
+                }
+                return count;
+            });
+            int done = replaced != null ? replaced : 0;
+            migrated += done;
+            changed += updates.size() - done;
+        }
+        
+        if (migrated > 0 || changed > 0 || failed > 0) {
+            log.info("Wallet encryption migration: {} re-encrypted, {} changed meanwhile, {} failed",
+                migrated, changed, failed);
         }
     }
     
     /**
-     * Encrypt private key for secure storage
+     * One-shot migration: recompute the public key of every stored-key wallet from its keypair once the
+     * application is up. The old Base58 encoder overflowed past 8 bytes, so wallets it created carry
+     * invalid addresses; the real address is the last 32 bytes of the stored keypair. It decrypts every
+     * stored key, so it only runs while app.wallet.repair-public-keys is set; turn it off once it has
+     * logged no failures.
      */
-    private String encryptPrivateKey(String privateKey) {
-        try {
-            // Create AES cipher
-            MessageDigest sha = MessageDigest.getInstance("SHA-256");
-            byte[] keyBytes = sha.digest(encryptionKey.getBytes(StandardCharsets.UTF_8));
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
-            
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            
-            byte[] encrypted = cipher.doFinal(privateKey.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(encrypted);
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairPublicKeys() {
+        if (!repairPublicKeysEnabled) {
+            return;
+        }
+        
+        long afterId = 0;
+        int repaired = 0;
+        int failed = 0;
+        while (true) {
+            List<UserWallet> batch = userWalletRepository.findByDerivationIndexIsNullAndIdGreaterThanOrderByIdAsc(
+                afterId, PageRequest.of(0, MIGRATION_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
             
-        } catch (Exception e) {
-            log.error("Error encrypting private key: {}", e.getMessage());
-            throw new RuntimeException("Failed to encrypt private key", e);
+            for (UserWallet wallet : batch) {
+                afterId = wallet.getId();
+                try {
+                    if (repairPublicKey(wallet)) {
+                        repaired++;
+                    }
+                } catch (RuntimeException e) {
+                    // Left as is (e.g. encrypted under another key); retried on the next start
+                    log.warn("Could not check the public key of wallet {}: {}", wallet.getId(), e.getMessage());
+                    failed++;
+                }
+            }
+        }
+        
+        if (repaired > 0 || failed > 0) {
+            log.info("Wallet public key repair: {} repaired, {} failed", repaired, failed);
         }
     }
     
     /**
-     * Decrypt private key from database
+     * Correct one wallet's public key, and the copies of it on the user, the token balance row and
+     * open orders (whose payouts are sent to it)
+     * @return Whether the stored key was wrong
      */
-    public String decryptPrivateKey(String encryptedPrivateKey) {
-        try {
-            // Create AES cipher
-            MessageDigest sha = MessageDigest.getInstance("SHA-256");
-            byte[] keyBytes = sha.digest(encryptionKey.getBytes(StandardCharsets.UTF_8));
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
-            
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            
-            byte[] decrypted = cipher.doFinal(Base64.getDecoder().decode(encryptedPrivateKey));
-            return new String(decrypted, StandardCharsets.UTF_8);
-            
-        } catch (Exception e) {
-            log.error("Error decrypting private key: {}", e.getMessage());
-            throw new RuntimeException("Failed to decrypt private key", e);
+    private boolean repairPublicKey(UserWallet wallet) {
+        if (wallet.getEncryptedPrivateKey() == null) {
+            return false;
         }
+        byte[] keypair = getWalletKeypair(wallet);
+        if (keypair.length != 64) {
+            throw new RuntimeException("Stored keypair is " + keypair.length + " bytes, expected 64");
+        }
+        String oldPublicKey = wallet.getPublicKey();
+        String publicKey = Base58.encode(Arrays.copyOfRange(keypair, 32, 64));
+        if (publicKey.equals(oldPublicKey)) {
+            return false;
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            wallet.setPublicKey(publicKey);
+            userWalletRepository.save(wallet);
+            
+            userRepository.findById(wallet.getUserId())
+                .filter(user -> oldPublicKey.equals(user.getWalletAddress()))
+                .ifPresent(user -> {
+                    user.setWalletAddress(publicKey);
+                    userRepository.save(user);
+                });
+            userTokenBalanceRepository.findByWalletAddress(oldPublicKey).ifPresent(balance -> {
+                balance.setWalletAddress(publicKey);
+                userTokenBalanceRepository.save(balance);
+            });
+            orderRepository.updateOpenOrderWalletAddress(oldPublicKey, publicKey);
+        });
+        log.info("Repaired public key of wallet {} (user {}): {} -> {}",
+            wallet.getId(), wallet.getUserId(), oldPublicKey, publicKey);
+        return true;
     }
     
     /**
@@ -202,40 +261,7 @@ public class WalletService {
     public Optional<UserWallet> getWalletByPublicKey(String publicKey) {
         return userWalletRepository.findByPublicKey(publicKey);
     }
-}
-
-/**
- * Simple Base58 encoder for Solana addresses
- */
-class Base58 {
-    private static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
     
-    public static String encode(byte[] input) {
-        if (input.length == 0) {
-            return "";
-        }
-        
-        StringBuilder sb = new StringBuilder();
-        long value = 0;
-        for (byte b : input) {
-            value = (value * 256) + (b & 0xFF);
-        }
-        
-        while (value > 0) {
-            sb.append(ALPHABET.charAt((int) (value % 58)));
-            value /= 58;
-        }
-        
-        // Handle leading zeros
-        for (byte b : input) {
-            if (b == 0) {
-                sb.append(ALPHABET.charAt(0));
-            } else {
-                break;
-            }
-        }
-        
-        return sb.reverse().toString();
+    private record KeyUpdate(Long id, String legacy, String encrypted) {
     }
 }
-
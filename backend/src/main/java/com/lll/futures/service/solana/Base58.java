@@ -0,0 +1,101 @@
+package com.lll.futures.service.solana;
+
+import java.util.Arrays;
+
+/**
+ * Base58 (Bitcoin alphabet) codec for Solana public keys and signatures.
+ *
+ * Converts between base 256 and base 58 digit by digit over a single scratch array, so encoding a
+ * 32-byte key needs one byte[] and one char[] and no BigInteger. Leading zero bytes map to leading '1's.
+ */
+public final class Base58 {
+
+    private static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+    private static final int[] INDEXES = new int[128];
+
+    static {
+        Arrays.fill(INDEXES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            INDEXES[ALPHABET[i]] = i;
+        }
+    }
+
+    private Base58() {
+    }
+
+    /**
+     * Encode bytes as a Base58 string
+     */
+    public static String encode(byte[] input) {
+        int zeros = 0;
+        while (zeros < input.length && input[zeros] == 0) {
+            zeros++;
+        }
+
+        // log(256) / log(58) is just under 1.38
+        int size = (input.length - zeros) * 138 / 100 + 1;
+        byte[] digits = new byte[size];
+        int length = 0;
+        for (int i = zeros; i < input.length; i++) {
+            int carry = input[i] & 0xFF;
+            int j = 0;
+            for (int k = size - 1; (carry != 0 || j < length) && k >= 0; k--, j++) {
+                carry += 256 * digits[k];
+                digits[k] = (byte) (carry % 58);
+                carry /= 58;
+            }
+            length = j;
+        }
+
+        int start = size - length;
+        while (start < size && digits[start] == 0) {
+            start++;
+        }
+
+        char[] output = new char[zeros + size - start];
+        Arrays.fill(output, 0, zeros, ALPHABET[0]);
+        for (int i = zeros; start < size; i++, start++) {
+            output[i] = ALPHABET[digits[start]];
+        }
+        return new String(output);
+    }
+
+    /**
+     * Decode a Base58 string
+     * @throws IllegalArgumentException if the string contains a character outside the alphabet
+     */
+    public static byte[] decode(String input) {
+        int zeros = 0;
+        while (zeros < input.length() && input.charAt(zeros) == ALPHABET[0]) {
+            zeros++;
+        }
+
+        // log(58) / log(256) is just under 0.733
+        int size = (input.length() - zeros) * 733 / 1000 + 1;
+        byte[] bytes = new byte[size];
+        int length = 0;
+        for (int i = zeros; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int carry = c < INDEXES.length ? INDEXES[c] : -1;
+            if (carry < 0) {
+                throw new IllegalArgumentException("Invalid Base58 character '" + c + "' at position " + i);
+            }
+            int j = 0;
+            for (int k = size - 1; (carry != 0 || j < length) && k >= 0; k--, j++) {
+                carry += 58 * (bytes[k] & 0xFF);
+                bytes[k] = (byte) carry;
+                carry >>>= 8;
+            }
+            length = j;
+        }
+
+        int start = size - length;
+        while (start < size && bytes[start] == 0) {
+            start++;
+        }
+
+        byte[] output = new byte[zeros + size - start];
+        System.arraycopy(bytes, start, output, zeros, size - start);
+        return output;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lll.futures.service.solana;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Holds the latest blockhash so transaction signers never wait on the network.
+ *
+ * A background job calls {@link #refresh()} on a short interval; {@link #get()} only
+ * fetches inline when nothing has been cached yet or the cached value is older than
+ * maxAgeMs (for example if the refresher is stalled). The async variants never block
+ * the calling thread, so they can be composed on RPC callback threads.
+ *
+ * Callers must sign with the returned blockhash and send the raw serialized transaction;
+ * a send API that fills in its own blockhash silently ignores the cache.
+ */
+@Slf4j
+public class BlockhashCache {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MS = 200;
+
+    private final Supplier<CompletableFuture<CachedBlockhash>> fetcher;
+    private final long maxAgeMs;
+    private final AtomicReference<CachedBlockhash> current = new AtomicReference<>();
+
+    public BlockhashCache(Supplier<CompletableFuture<CachedBlockhash>> fetcher, long maxAgeMs) {
+        this.fetcher = fetcher;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Get the cached blockhash, fetching only if it is missing or too old
+     */
+    public CachedBlockhash get() {
+        return join(getAsync());
+    }
+
+    /**
+     * Like {@link #get()}, without blocking when a fetch is needed
+     */
+    public CompletableFuture<CachedBlockhash> getAsync() {
+        CachedBlockhash cached = current.get();
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt() < maxAgeMs) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return refreshAsync();
+    }
+
+    /**
+     * Fetch a new blockhash, retrying with jittered exponential backoff
+     */
+    public CachedBlockhash refresh() {
+        return join(refreshAsync());
+    }
+
+    /**
+     * Like {@link #refresh()}; retries are scheduled instead of sleeping
+     */
+    public CompletableFuture<CachedBlockhash> refreshAsync() {
+        return attempt(0);
+    }
+
+    private CompletableFuture<CachedBlockhash> attempt(int attempt) {
+        CompletableFuture<CachedBlockhash> fetch;
+        try {
+            fetch = fetcher.get();
+        } catch (RuntimeException e) {
+            fetch = CompletableFuture.failedFuture(e);
+        }
+
+        return fetch.thenApply(fetched -> {
+            current.set(fetched);
+            log.debug("Refreshed blockhash {} (last valid block height {})",
+                fetched.blockhash(), fetched.lastValidBlockHeight());
+            return fetched;
+        }).exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("Blockhash refresh attempt {} failed: {}", attempt + 1, cause.getMessage());
+            if (attempt == MAX_ATTEMPTS - 1) {
+                return CompletableFuture.failedFuture(new RuntimeException("Unable to fetch latest blockhash", cause));
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(retryDelayMs(attempt), TimeUnit.MILLISECONDS);
+            return CompletableFuture.runAsync(() -> { }, delayed).thenCompose(ignored -> attempt(attempt + 1));
+        });
+    }
+
+    private long retryDelayMs(int attempt) {
+        long backoff = RETRY_BASE_DELAY_MS << attempt;
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private static CachedBlockhash join(CompletableFuture<CachedBlockhash> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    public record CachedBlockhash(String blockhash, long lastValidBlockHeight, long fetchedAt) {
+    }
+}
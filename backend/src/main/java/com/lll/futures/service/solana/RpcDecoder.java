@@ -0,0 +1,26 @@
+package com.lll.futures.service.solana;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+
+/**
+ * Decodes the "result" of a JSON-RPC response straight from the token stream.
+ *
+ * {@link #decode(JsonParser)} is called with the parser on the first token of the result
+ * value and must leave it on the last token of that value, reading only the fields it
+ * needs and skipping the rest.
+ */
+@FunctionalInterface
+public interface RpcDecoder<T> {
+
+    T decode(JsonParser parser) throws IOException;
+
+    /**
+     * Called instead of {@link #decode(JsonParser)} when the response carries an error
+     */
+    default T onError(JsonNode error) throws IOException {
+        throw new SolanaRpcException(error.path("code").asInt(), error.path("message").asText());
+    }
+}
@@ -0,0 +1,435 @@
+package com.lll.futures.service.solana;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoders for the Solana RPC results SolanaService reads.
+ *
+ * Each decoder pulls the few fields it needs off the parser and skips everything else,
+ * so no JsonNode tree is built for the response.
+ */
+public final class RpcDecoders {
+
+    // SPL token account layout: mint (32 bytes), owner (32 bytes), amount (u64 little-endian), ...
+    private static final int TOKEN_ACCOUNT_AMOUNT_OFFSET = 64;
+
+    /**
+     * The whole response as a tree ({"result": ...} or {"error": ...}), for callers that walk JsonNodes
+     */
+    public static final RpcDecoder<JsonNode> RESPONSE = new RpcDecoder<>() {
+        @Override
+        public JsonNode decode(JsonParser parser) throws IOException {
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            response.set("result", parser.readValueAsTree());
+            return response;
+        }
+
+        @Override
+        public JsonNode onError(JsonNode error) {
+            ObjectNode response = JsonNodeFactory.instance.objectNode();
+            response.set("error", error);
+            return response;
+        }
+    };
+
+    /**
+     * getAccountInfo: whether result.value is non-null
+     */
+    public static final RpcDecoder<Boolean> ACCOUNT_EXISTS = parser -> {
+        boolean exists = false;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("value".equals(field)) {
+                    exists = parser.currentToken() != JsonToken.VALUE_NULL;
+                }
+                parser.skipChildren();
+            }
+        }
+        return exists;
+    };
+
+    /**
+     * getTokenAccountBalance: result.value.amount in base units, or null
+     */
+    public static final RpcDecoder<Long> TOKEN_ACCOUNT_BALANCE = parser -> {
+        Long amount = null;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("value".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    amount = readAmountField(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return amount;
+    };
+
+    /**
+     * getTokenAccountsByOwner: pubkey of the first account in result.value, or null
+     */
+    public static final RpcDecoder<String> FIRST_ACCOUNT_PUBKEY = parser -> {
+        String pubkey = null;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("value".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (pubkey == null && parser.currentToken() == JsonToken.START_OBJECT) {
+                            pubkey = readStringField(parser, "pubkey");
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return pubkey;
+    };
+
+    /**
+     * getLatestBlockhash: result.value.blockhash and lastValidBlockHeight
+     */
+    public static final RpcDecoder<BlockhashCache.CachedBlockhash> LATEST_BLOCKHASH = parser -> {
+        String blockhash = null;
+        long lastValidBlockHeight = 0;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("value".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String valueField = parser.currentName();
+                        parser.nextToken();
+                        if ("blockhash".equals(valueField)) {
+                            blockhash = parser.getText();
+                        } else if ("lastValidBlockHeight".equals(valueField)) {
+                            lastValidBlockHeight = parser.getLongValue();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (blockhash == null) {
+            throw new IOException("No blockhash in getLatestBlockhash response");
+        }
+        return new BlockhashCache.CachedBlockhash(blockhash, lastValidBlockHeight, System.currentTimeMillis());
+    };
+
+    /**
+     * getMultipleAccounts with base64 encoding: the token amount of each account, null for missing accounts
+     */
+    public static final RpcDecoder<List<Long>> TOKEN_ACCOUNT_AMOUNTS = parser -> {
+        List<Long> amounts = new ArrayList<>();
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("value".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        amounts.add(parser.currentToken() == JsonToken.START_OBJECT ? readAccountAmount(parser) : null);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return amounts;
+    };
+
+    /**
+     * getSignatureStatuses: one status per signature, null for signatures the cluster does not know
+     */
+    public static final RpcDecoder<List<SignatureStatus>> SIGNATURE_STATUSES = parser -> {
+        List<SignatureStatus> statuses = new ArrayList<>();
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("value".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        statuses.add(parser.currentToken() == JsonToken.START_OBJECT ? readSignatureStatus(parser) : null);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return statuses;
+    };
+
+    /**
+     * Plain numeric results such as getBlockHeight
+     */
+    public static final RpcDecoder<Long> LONG_VALUE = parser -> {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        parser.skipChildren();
+        return null;
+    };
+
+    /**
+     * Plain string results such as the signature returned by sendTransaction
+     */
+    public static final RpcDecoder<String> STRING_VALUE = parser -> {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    };
+
+    /**
+     * getSignaturesForAddress: signatures newest first, with whether each transaction failed
+     */
+    public static final RpcDecoder<List<SignatureInfo>> SIGNATURE_INFOS = parser -> {
+        List<SignatureInfo> signatures = new ArrayList<>();
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String signature = null;
+                boolean failed = false;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("signature".equals(field)) {
+                        signature = parser.getText();
+                    } else if ("err".equals(field)) {
+                        failed = parser.currentToken() != JsonToken.VALUE_NULL;
+                        parser.skipChildren();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (signature != null) {
+                    signatures.add(new SignatureInfo(signature, failed));
+                }
+            }
+        }
+        return signatures;
+    };
+
+    private RpcDecoders() {
+    }
+
+    /**
+     * getTransaction with jsonParsed encoding: the change in base units of every token account of
+     * the given mint, keyed by token account address. Failed transactions have no changes; a
+     * transaction the node does not have yet decodes to null.
+     */
+    public static RpcDecoder<Map<String, Long>> tokenBalanceDeltas(String mint) {
+        return parser -> {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return null;
+            }
+
+            // meta and transaction may come in either order, so resolve account indexes at the end
+            List<String> accountKeys = new ArrayList<>();
+            Map<Integer, Long> pre = new HashMap<>();
+            Map<Integer, Long> post = new HashMap<>();
+            boolean failed = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("meta".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String metaField = parser.currentName();
+                        parser.nextToken();
+                        if ("err".equals(metaField)) {
+                            failed = parser.currentToken() != JsonToken.VALUE_NULL;
+                            parser.skipChildren();
+                        } else if ("preTokenBalances".equals(metaField)) {
+                            readTokenBalances(parser, mint, pre);
+                        } else if ("postTokenBalances".equals(metaField)) {
+                            readTokenBalances(parser, mint, post);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if ("transaction".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    readAccountKeys(parser, accountKeys);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            Map<String, Long> deltas = new HashMap<>();
+            if (failed) {
+                return deltas;
+            }
+            Map<Integer, Long> indexes = new HashMap<>(post);
+            pre.keySet().forEach(index -> indexes.putIfAbsent(index, 0L));
+            for (Integer index : indexes.keySet()) {
+                if (index >= accountKeys.size()) {
+                    throw new IOException("Token balance refers to unknown account index " + index);
+                }
+                long delta = post.getOrDefault(index, 0L) - pre.getOrDefault(index, 0L);
+                if (delta != 0) {
+                    deltas.merge(accountKeys.get(index), delta, Long::sum);
+                }
+            }
+            return deltas;
+        };
+    }
+
+    /**
+     * Decode the amount from raw SPL token account data, or null if the data is too short
+     */
+    public static Long decodeTokenAccountAmount(byte[] data) {
+        if (data.length < TOKEN_ACCOUNT_AMOUNT_OFFSET + 8) {
+            return null;
+        }
+        long amount = 0;
+        for (int i = 0; i < 8; i++) {
+            amount |= ((long) (data[TOKEN_ACCOUNT_AMOUNT_OFFSET + i] & 0xFF)) << (i * 8);
+        }
+        return amount;
+    }
+
+    // Reads {"amount": "123", ...} leaving the parser on the object's END_OBJECT
+    private static Long readAmountField(JsonParser parser) throws IOException {
+        String amount = readStringField(parser, "amount");
+        return amount != null ? Long.parseLong(amount) : null;
+    }
+
+    private static String readStringField(JsonParser parser, String name) throws IOException {
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                value = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    // Reads {"confirmationStatus": ..., "err": ...} leaving the parser on its END_OBJECT
+    private static SignatureStatus readSignatureStatus(JsonParser parser) throws IOException {
+        String confirmationStatus = null;
+        boolean failed = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("confirmationStatus".equals(field)) {
+                confirmationStatus = parser.getValueAsString();
+            } else if ("err".equals(field)) {
+                failed = parser.currentToken() != JsonToken.VALUE_NULL;
+                parser.skipChildren();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new SignatureStatus(confirmationStatus, failed);
+    }
+
+    // Reads [{"accountIndex": 1, "mint": ..., "uiTokenAmount": {"amount": "123"}}, ...] for one mint
+    private static void readTokenBalances(JsonParser parser, String mint, Map<Integer, Long> amounts) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            Integer accountIndex = null;
+            String balanceMint = null;
+            Long amount = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("accountIndex".equals(field)) {
+                    accountIndex = parser.getIntValue();
+                } else if ("mint".equals(field)) {
+                    balanceMint = parser.getText();
+                } else if ("uiTokenAmount".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    amount = readAmountField(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (accountIndex != null && amount != null && mint.equals(balanceMint)) {
+                amounts.put(accountIndex, amount);
+            }
+        }
+    }
+
+    // Reads transaction.message.accountKeys (objects with a pubkey when jsonParsed, plain strings otherwise)
+    private static void readAccountKeys(JsonParser parser, List<String> accountKeys) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (!"message".equals(field) || parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String messageField = parser.currentName();
+                parser.nextToken();
+                if ("accountKeys".equals(messageField) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (parser.currentToken() == JsonToken.START_OBJECT) {
+                            accountKeys.add(readStringField(parser, "pubkey"));
+                        } else {
+                            accountKeys.add(parser.getText());
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    // Reads an account object {"data": [base64, "base64"], ...} leaving the parser on its END_OBJECT
+    private static Long readAccountAmount(JsonParser parser) throws IOException {
+        Long amount = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("data".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                    // Base64 is decoded straight from the token buffer
+                    amount = decodeTokenAccountAmount(parser.getBinaryValue());
+                }
+                while (parser.currentToken() != JsonToken.END_ARRAY) {
+                    parser.skipChildren();
+                    parser.nextToken();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return amount;
+    }
+}
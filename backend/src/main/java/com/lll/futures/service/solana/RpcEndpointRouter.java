@@ -0,0 +1,192 @@
+package com.lll.futures.service.solana;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tracks health of the configured Solana RPC endpoints and ranks them for routing.
+ *
+ * Each endpoint keeps an EWMA of response latency and error rate. Endpoints are ranked
+ * by latency penalized by error rate. A circuit breaker ejects an endpoint after
+ * consecutive failures and lets a single probe request through once the cool-down
+ * has passed; a successful probe reinstates it.
+ */
+@Slf4j
+public class RpcEndpointRouter {
+
+    private static final double ALPHA = 0.2;
+    private static final double ERROR_PENALTY = 10.0;
+
+    private final List<Endpoint> endpoints;
+    private final int failureThreshold;
+    private final long openDurationMs;
+    private final double hedgeLatencyMultiplier;
+    private final long minHedgeDelayMs;
+
+    public RpcEndpointRouter(List<String> urls, int failureThreshold, long openDurationMs,
+                             double hedgeLatencyMultiplier, long minHedgeDelayMs) {
+        this.endpoints = urls.stream().map(String::trim).filter(url -> !url.isEmpty()).map(Endpoint::new).toList();
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one Solana RPC endpoint is required");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+        this.hedgeLatencyMultiplier = hedgeLatencyMultiplier;
+        this.minHedgeDelayMs = minHedgeDelayMs;
+    }
+
+    /**
+     * Endpoints that may receive a request now, best first.
+     * If every circuit is open the least recently failed endpoint is returned so requests still go out.
+     * Ranking does not take a half-open endpoint's probe slot; call {@link #claim} for the endpoint actually used.
+     */
+    public List<Endpoint> ranked() {
+        long now = System.currentTimeMillis();
+        List<Endpoint> available = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isEligible(now, openDurationMs)) {
+                available.add(endpoint);
+            }
+        }
+        if (available.isEmpty()) {
+            available.add(endpoints.stream().min(Comparator.comparingLong(Endpoint::getOpenedAt)).orElseThrow());
+        }
+        available.sort(Comparator.comparingDouble(Endpoint::score));
+        return available;
+    }
+
+    /**
+     * Claim an endpoint for a request about to be sent. A half-open endpoint admits one probe per
+     * cool-down, so this fails if another request already holds its probe; when no endpoint is
+     * eligible at all (the fallback in {@link #ranked}) the request is let through anyway.
+     */
+    public boolean claim(Endpoint endpoint) {
+        long now = System.currentTimeMillis();
+        if (endpoint.tryClaim(now, openDurationMs)) {
+            return true;
+        }
+        return endpoints.stream().noneMatch(e -> e.isEligible(now, openDurationMs));
+    }
+
+    public Endpoint primary() {
+        return ranked().get(0);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * How long to wait on an endpoint before sending a hedged copy of a read
+     */
+    public long hedgeDelayMs(Endpoint endpoint) {
+        return Math.max(minHedgeDelayMs, (long) (endpoint.getLatencyMs() * hedgeLatencyMultiplier));
+    }
+
+    public void recordSuccess(Endpoint endpoint, long latencyMs) {
+        endpoint.onSuccess(latencyMs);
+    }
+
+    public void recordFailure(Endpoint endpoint) {
+        if (endpoint.onFailure(failureThreshold)) {
+            log.warn("Solana RPC endpoint {} ejected after {} consecutive failures", endpoint.getUrl(), failureThreshold);
+        }
+    }
+
+    public static class Endpoint {
+        private final String url;
+        private double latencyMs = 100.0;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean probing;
+        private long probeStartedAt;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public synchronized double getLatencyMs() {
+            return latencyMs;
+        }
+
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        public synchronized boolean isOpen() {
+            return openedAt > 0;
+        }
+
+        synchronized long getOpenedAt() {
+            return openedAt;
+        }
+
+        synchronized double score() {
+            return latencyMs * (1.0 + errorRate * ERROR_PENALTY);
+        }
+
+        /**
+         * Closed, or half-open with its probe slot free
+         */
+        synchronized boolean isEligible(long now, long openDurationMs) {
+            if (openedAt == 0) {
+                return true;
+            }
+            // Half-open: allow one probe per cool-down once the cool-down has passed
+            return now - openedAt >= openDurationMs && (!probing || now - probeStartedAt >= openDurationMs);
+        }
+
+        /**
+         * Take the endpoint for a request, using up the probe slot if it is half-open
+         */
+        synchronized boolean tryClaim(long now, long openDurationMs) {
+            if (openedAt == 0) {
+                return true;
+            }
+            if (!isEligible(now, openDurationMs)) {
+                return false;
+            }
+            probing = true;
+            probeStartedAt = now;
+            return true;
+        }
+
+        synchronized void onSuccess(long elapsedMs) {
+            latencyMs = ALPHA * elapsedMs + (1 - ALPHA) * latencyMs;
+            errorRate = (1 - ALPHA) * errorRate;
+            consecutiveFailures = 0;
+            if (openedAt > 0) {
+                log.info("Solana RPC endpoint {} reinstated", url);
+            }
+            openedAt = 0;
+            probing = false;
+        }
+
+        /**
+         * @return true if this failure opened the circuit
+         */
+        synchronized boolean onFailure(int failureThreshold) {
+            errorRate = ALPHA + (1 - ALPHA) * errorRate;
+            consecutiveFailures++;
+            if (probing) {
+                // Failed probe - stay ejected for another cool-down
+                probing = false;
+                openedAt = System.currentTimeMillis();
+                return false;
+            }
+            if (openedAt == 0 && consecutiveFailures >= failureThreshold) {
+                openedAt = System.currentTimeMillis();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.lll.futures.service.solana;
+
+/**
+ * Priority lanes for outbound Solana RPC calls, highest first.
+ * The rate limiter always serves waiting calls in a higher lane before a lower one.
+ */
+public enum RpcPriority {
+    USER_TRANSFER,
+    SETTLEMENT,
+    BACKGROUND;
+
+    /**
+     * Priority of RPC calls made on the current thread
+     */
+    private static final ThreadLocal<RpcPriority> CURRENT = ThreadLocal.withInitial(() -> USER_TRANSFER);
+
+    public static RpcPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run the calls made on this thread at this priority until the returned scope is closed
+     */
+    public Scope enter() {
+        RpcPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> CURRENT.set(previous);
+    }
+
+    /**
+     * Held in try-with-resources and never referenced in the body, so methods that enter a scope
+     * carry @SuppressWarnings("try") to keep -Xlint:try quiet
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
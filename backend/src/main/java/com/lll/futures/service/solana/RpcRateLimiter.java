@@ -0,0 +1,177 @@
+package com.lll.futures.service.solana;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket that keeps outbound RPC traffic within the provider's per-second quota.
+ *
+ * Permits refill continuously at permitsPerSecond up to burst. Callers that cannot be
+ * served immediately wait in the lane of their {@link RpcPriority}; permits always go to
+ * the oldest waiter of the highest non-empty lane, so background work can only use
+ * budget that latency-sensitive work is not waiting for.
+ *
+ * A request for more permits than the burst waits for a full bucket and then takes the
+ * whole amount, leaving the bucket in debt; later callers wait for the debt to refill,
+ * so large batches are charged in full and the average rate holds.
+ */
+public class RpcRateLimiter {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition changed = lock.newCondition();
+    private final Map<RpcPriority, ArrayDeque<Thread>> lanes = new EnumMap<>(RpcPriority.class);
+    private final Map<RpcPriority, LaneStats> stats = new EnumMap<>(RpcPriority.class);
+    private double tokens;
+    private long lastRefillNanos;
+
+    public RpcRateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+        for (RpcPriority priority : RpcPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            stats.put(priority, new LaneStats());
+        }
+    }
+
+    /**
+     * Block until permits are granted to the calling thread's priority lane
+     */
+    public void acquire(int permits, RpcPriority priority) throws InterruptedException {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+        // Wait for at most a full bucket, but charge every permit (going into debt beyond the burst)
+        double needed = Math.min(permits, burst);
+        long start = System.nanoTime();
+        Thread self = Thread.currentThread();
+        ArrayDeque<Thread> lane = lanes.get(priority);
+
+        lock.lock();
+        try {
+            lane.addLast(self);
+            try {
+                while (true) {
+                    refill();
+                    if (isNext(self, priority) && tokens >= needed) {
+                        tokens -= permits;
+                        break;
+                    }
+                    long waitNanos = isNext(self, priority)
+                        ? (long) ((needed - tokens) / permitsPerSecond * 1_000_000_000L)
+                        : TimeUnit.MILLISECONDS.toNanos(50);
+                    changed.awaitNanos(Math.max(waitNanos, 100_000L));
+                }
+            } finally {
+                lane.remove(self);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        stats.get(priority).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Take permits in a lane only if they are available now and no caller in that lane or a higher
+     * one is waiting; never blocks, so it is safe on I/O callback threads
+     */
+    public boolean tryAcquire(int permits, RpcPriority priority) {
+        if (permitsPerSecond <= 0) {
+            return true;
+        }
+        lock.lock();
+        try {
+            refill();
+            for (RpcPriority higher : RpcPriority.values()) {
+                if (!lanes.get(higher).isEmpty()) {
+                    return false;
+                }
+                if (higher == priority) {
+                    break;
+                }
+            }
+            if (tokens < Math.min(permits, burst)) {
+                return false;
+            }
+            tokens -= permits;
+        } finally {
+            lock.unlock();
+        }
+        stats.get(priority).record(0);
+        return true;
+    }
+
+    /**
+     * Take permits only if they are available now and nobody is waiting, e.g. for optional hedged requests
+     */
+    public boolean tryAcquire(int permits) {
+        if (permitsPerSecond <= 0) {
+            return true;
+        }
+        lock.lock();
+        try {
+            refill();
+            if (lanes.values().stream().allMatch(ArrayDeque::isEmpty) && tokens >= permits) {
+                tokens -= permits;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth(RpcPriority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAcquiredCount(RpcPriority priority) {
+        return stats.get(priority).count.get();
+    }
+
+    public double getTotalWaitNanos(RpcPriority priority) {
+        return stats.get(priority).totalWaitNanos.get();
+    }
+
+    private boolean isNext(Thread self, RpcPriority priority) {
+        for (RpcPriority higher : RpcPriority.values()) {
+            if (higher == priority) {
+                return lanes.get(priority).peekFirst() == self;
+            }
+            if (!lanes.get(higher).isEmpty()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    private static class LaneStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+
+        void record(long waitNanos) {
+            count.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+        }
+    }
+}
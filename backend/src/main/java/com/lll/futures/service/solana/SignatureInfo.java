@@ -0,0 +1,10 @@
+package com.lll.futures.service.solana;
+
+/**
+ * One entry of getSignaturesForAddress
+ *
+ * @param signature transaction signature
+ * @param failed whether the transaction landed with an error
+ */
+public record SignatureInfo(String signature, boolean failed) {
+}
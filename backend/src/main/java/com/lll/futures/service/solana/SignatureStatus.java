@@ -0,0 +1,14 @@
+package com.lll.futures.service.solana;
+
+/**
+ * Status of a transaction signature as reported by getSignatureStatuses
+ *
+ * @param confirmationStatus processed, confirmed or finalized
+ * @param failed whether the transaction landed with an error
+ */
+public record SignatureStatus(String confirmationStatus, boolean failed) {
+
+    public boolean isConfirmed() {
+        return "confirmed".equals(confirmationStatus) || "finalized".equals(confirmationStatus);
+    }
+}
@@ -0,0 +1,114 @@
+package com.lll.futures.service.solana;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token ledger used when real Solana integration is disabled.
+ *
+ * Balances live in a concurrent map and move only through transfers, which fail like the
+ * token program does when the source cannot cover the amount. Each call waits for a
+ * log-normally distributed latency (median latencyMs, spread latencySigma) and fails with
+ * probability failureRate, so load tests see realistic timing and error paths offline.
+ * Wallets not seen before start with initialBalance.
+ */
+@Slf4j
+public class SimulatedTokenLedger implements TokenLedger {
+
+    private static final int SIGNATURE_BYTES = 64;
+
+    private final Map<String, Long> balances = new ConcurrentHashMap<>();
+    private final long initialBalance;
+    private final long latencyMs;
+    private final double latencySigma;
+    private final double failureRate;
+    private final AtomicLong transfers = new AtomicLong();
+    private final AtomicLong failedTransfers = new AtomicLong();
+
+    public SimulatedTokenLedger(long initialBalance, long latencyMs, double latencySigma, double failureRate) {
+        this.initialBalance = initialBalance;
+        this.latencyMs = latencyMs;
+        this.latencySigma = latencySigma;
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Set a wallet's balance, e.g. to fund the vault
+     */
+    public void seed(String wallet, long amount) {
+        balances.put(wallet, amount);
+    }
+
+    @Override
+    public String transfer(String fromWallet, String toWallet, long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        try {
+            simulateNetwork();
+
+            // Debit atomically; compute() holds the entry so concurrent transfers cannot overdraw
+            balances.compute(fromWallet, (wallet, balance) -> {
+                long available = balance != null ? balance : initialBalance;
+                if (available < amount) {
+                    throw new IllegalStateException("insufficient funds: " + wallet + " has " + available + ", needs " + amount);
+                }
+                return available - amount;
+            });
+            balances.merge(toWallet, initialBalance + amount, (balance, ignored) -> balance + amount);
+        } catch (RuntimeException e) {
+            // Injected network failures as well as insufficient funds
+            failedTransfers.incrementAndGet();
+            throw e;
+        }
+
+        transfers.incrementAndGet();
+        return randomSignature();
+    }
+
+    @Override
+    public long getBalance(String wallet) {
+        simulateNetwork();
+        return balances.getOrDefault(wallet, initialBalance);
+    }
+
+    public long getTransferCount() {
+        return transfers.get();
+    }
+
+    public long getFailedTransferCount() {
+        return failedTransfers.get();
+    }
+
+    public void resetCounters() {
+        transfers.set(0);
+        failedTransfers.set(0);
+    }
+
+    private void simulateNetwork() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (latencyMs > 0) {
+            long delay = Math.round(latencyMs * Math.exp(latencySigma * random.nextGaussian()));
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during simulated RPC call");
+            }
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            throw new IllegalStateException("Simulated RPC failure");
+        }
+    }
+
+    // Random 64 bytes in base58, shaped like a real transaction signature
+    public String randomSignature() {
+        byte[] signature = new byte[SIGNATURE_BYTES];
+        ThreadLocalRandom.current().nextBytes(signature);
+        return Base58.encode(signature);
+    }
+}
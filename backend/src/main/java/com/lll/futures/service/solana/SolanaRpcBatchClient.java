@@ -0,0 +1,491 @@
+package com.lll.futures.service.solana;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JSON-RPC client that sends calls to the Solana RPC endpoint as batches.
+ *
+ * {@link #callBatch(List)} sends many calls as one JSON array with distinct ids and
+ * returns the responses in call order. {@link #submit(String, Object, RpcDecoder)} queues a single
+ * call and coalesces it with other calls made within the coalescing window, so
+ * concurrent callers share one HTTP round trip.
+ *
+ * Each batch goes to the best endpoint chosen by {@link RpcEndpointRouter}. A batch of
+ * reads that has not answered within the endpoint's hedge delay is also sent to the
+ * next endpoint and the first good response wins; failed requests fail over to the
+ * next endpoint.
+ *
+ * Every call takes a permit from the {@link RpcRateLimiter} in the lane of its
+ * {@link RpcPriority}. Blocking calls wait for the permit on the caller's thread.
+ * {@link #submit} never blocks, because it is composed on OkHttp callback threads: it takes
+ * a free permit immediately, or it waits on a permit thread and sends the call from there.
+ * Hedged copies are only sent when spare permits are available.
+ *
+ * Responses are read as a token stream straight from the HTTP body and each result is
+ * handed to the call's {@link RpcDecoder}, so typed calls never build a JsonNode tree.
+ */
+@Slf4j
+public class SolanaRpcBatchClient {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final Set<String> WRITE_METHODS = Set.of("sendTransaction", "requestAirdrop");
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final RpcEndpointRouter router;
+    private final RpcRateLimiter rateLimiter;
+    private final boolean hedgeReads;
+    private final long coalesceWindowMicros;
+    private final int maxBatchSize;
+    private final long callTimeoutMs;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ScheduledExecutorService flusher;
+    // Submitted calls that found no free permit wait here, never on the submitting (possibly I/O) thread
+    private final ExecutorService permitWaiters;
+    private final Object lock = new Object();
+    private List<PendingCall> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    public SolanaRpcBatchClient(OkHttpClient httpClient, ObjectMapper objectMapper, RpcEndpointRouter router,
+                                RpcRateLimiter rateLimiter, boolean hedgeReads, long coalesceWindowMicros,
+                                int maxBatchSize, long callTimeoutMs) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.router = router;
+        this.rateLimiter = rateLimiter;
+        this.hedgeReads = hedgeReads;
+        this.coalesceWindowMicros = coalesceWindowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.callTimeoutMs = callTimeoutMs;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "solana-rpc-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger permitThreads = new AtomicInteger();
+        this.permitWaiters = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "solana-rpc-permit-" + permitThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Make a single call, coalesced with concurrent calls, and wait for its response
+     */
+    public JsonNode call(String method, Object params) throws IOException {
+        return call(method, params, RpcDecoders.RESPONSE);
+    }
+
+    /**
+     * Make a single call and decode its result, coalesced with concurrent calls
+     */
+    public <T> T call(String method, Object params, RpcDecoder<T> decoder) throws IOException {
+        PendingCall call = new PendingCall(nextId.getAndIncrement(), method, params, decoder, new CompletableFuture<>());
+        try {
+            rateLimiter.acquire(1, RpcPriority.current());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for RPC rate limit");
+        }
+        enqueue(call);
+        return await(typed(call.future()));
+    }
+
+    /**
+     * Queue a single call at the calling thread's priority to be sent with the next batch
+     */
+    public <T> CompletableFuture<T> submit(String method, Object params, RpcDecoder<T> decoder) {
+        return submit(method, params, decoder, RpcPriority.current());
+    }
+
+    /**
+     * Queue a single call at the given priority to be sent with the next batch, without blocking.
+     * Continuations run on OkHttp threads, where the thread's own priority is meaningless, so async
+     * callers capture the priority when the chain is created and pass it here.
+     */
+    public <T> CompletableFuture<T> submit(String method, Object params, RpcDecoder<T> decoder, RpcPriority priority) {
+        PendingCall call = new PendingCall(nextId.getAndIncrement(), method, params, decoder, new CompletableFuture<>());
+        CompletableFuture<T> result = typed(call.future());
+
+        if (rateLimiter.tryAcquire(1, priority)) {
+            enqueue(call);
+            return result;
+        }
+        try {
+            permitWaiters.execute(() -> {
+                try {
+                    rateLimiter.acquire(1, priority);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    call.future().completeExceptionally(new IOException("Interrupted waiting for RPC rate limit"));
+                    return;
+                }
+                enqueue(call);
+            });
+        } catch (RejectedExecutionException e) {
+            call.future().completeExceptionally(new IOException("RPC client is shut down", e));
+        }
+        return result;
+    }
+
+    /**
+     * Add a call that already holds its permit to the coalescing window, or send it straight away
+     */
+    private void enqueue(PendingCall call) {
+        if (coalesceWindowMicros <= 0) {
+            send(List.of(call));
+            return;
+        }
+
+        List<PendingCall> ready = null;
+        synchronized (lock) {
+            pending.add(call);
+            if (pending.size() >= maxBatchSize) {
+                ready = drain();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, coalesceWindowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+    }
+
+    /**
+     * Send many calls as JSON-RPC batches and return the responses in call order
+     */
+    public List<JsonNode> callBatch(List<RpcCall> calls) throws IOException {
+        return callBatch(calls, RpcDecoders.RESPONSE);
+    }
+
+    /**
+     * Send many calls as JSON-RPC batches and return the decoded results in call order
+     */
+    public <T> List<T> callBatch(List<RpcCall> calls, RpcDecoder<T> decoder) throws IOException {
+        List<PendingCall> batch = new ArrayList<>(calls.size());
+        for (RpcCall rpcCall : calls) {
+            batch.add(new PendingCall(nextId.getAndIncrement(), rpcCall.method(), rpcCall.params(), decoder,
+                new CompletableFuture<>()));
+        }
+
+        for (int from = 0; from < batch.size(); from += maxBatchSize) {
+            List<PendingCall> chunk = batch.subList(from, Math.min(from + maxBatchSize, batch.size()));
+            try {
+                rateLimiter.acquire(chunk.size(), RpcPriority.current());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for RPC rate limit");
+            }
+            send(chunk);
+        }
+
+        List<T> responses = new ArrayList<>(batch.size());
+        for (PendingCall call : batch) {
+            responses.add(await(typed(call.future())));
+        }
+        return responses;
+    }
+
+    public void shutdown() {
+        flusher.shutdown();
+        permitWaiters.shutdownNow();
+    }
+
+    private void flush() {
+        List<PendingCall> ready;
+        synchronized (lock) {
+            ready = drain();
+        }
+        if (!ready.isEmpty()) {
+            send(ready);
+        }
+    }
+
+    private List<PendingCall> drain() {
+        List<PendingCall> ready = pending;
+        pending = new ArrayList<>();
+        flushScheduled = false;
+        return ready;
+    }
+
+    private void send(List<PendingCall> batch) {
+        ArrayNode payload = objectMapper.createArrayNode();
+        Map<Long, PendingCall> byId = new HashMap<>();
+        boolean readOnly = true;
+        for (PendingCall call : batch) {
+            ObjectNode request = payload.addObject();
+            request.put("jsonrpc", "2.0");
+            request.put("id", call.id());
+            request.put("method", call.method());
+            request.set("params", objectMapper.valueToTree(call.params()));
+            byId.put(call.id(), call);
+            readOnly &= !WRITE_METHODS.contains(call.method());
+        }
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            failAll(byId, e);
+            return;
+        }
+
+        // With a single decoder for the whole batch, results can be decoded before their id is seen
+        RpcDecoder<?> uniformDecoder = batch.get(0).decoder();
+        for (PendingCall call : batch) {
+            if (call.decoder() != uniformDecoder) {
+                uniformDecoder = null;
+                break;
+            }
+        }
+
+        new BatchAttempt(body, byId, uniformDecoder, router.ranked(), hedgeReads && readOnly).start();
+    }
+
+    /**
+     * One batch in flight, possibly on several endpoints (hedging and failover)
+     */
+    private class BatchAttempt {
+        private final byte[] body;
+        private final Map<Long, PendingCall> byId;
+        private final RpcDecoder<?> uniformDecoder;
+        private final List<RpcEndpointRouter.Endpoint> endpoints;
+        private final boolean hedge;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private final AtomicInteger nextEndpoint = new AtomicInteger(0);
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private volatile IOException lastError;
+
+        BatchAttempt(byte[] body, Map<Long, PendingCall> byId, RpcDecoder<?> uniformDecoder,
+                     List<RpcEndpointRouter.Endpoint> endpoints, boolean hedge) {
+            this.body = body;
+            this.byId = byId;
+            this.uniformDecoder = uniformDecoder;
+            this.endpoints = endpoints;
+            this.hedge = hedge;
+        }
+
+        void start() {
+            RpcEndpointRouter.Endpoint first = endpoints.get(0);
+            launchNext();
+            if (hedge && endpoints.size() > 1) {
+                flusher.schedule(() -> {
+                    if (!done.get() && rateLimiter.tryAcquire(byId.size())) {
+                        log.debug("Hedging RPC batch after {} ms on {}", router.hedgeDelayMs(first), first.getUrl());
+                        launchNext();
+                    }
+                }, router.hedgeDelayMs(first), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private boolean launchNext() {
+            RpcEndpointRouter.Endpoint candidate;
+            do {
+                int index = nextEndpoint.getAndIncrement();
+                if (index >= endpoints.size()) {
+                    return false;
+                }
+                candidate = endpoints.get(index);
+                // A half-open endpoint whose probe another request already took is skipped
+            } while (!router.claim(candidate));
+            RpcEndpointRouter.Endpoint endpoint = candidate;
+            inFlight.incrementAndGet();
+            long started = System.nanoTime();
+
+            Request httpRequest = new Request.Builder()
+                .url(endpoint.getUrl())
+                .post(RequestBody.create(body, JSON))
+                .build();
+
+            httpClient.newCall(httpRequest).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call httpCall, IOException e) {
+                    failed(endpoint, e);
+                }
+
+                @Override
+                public void onResponse(Call httpCall, Response response) {
+                    try (ResponseBody responseBody = response.body()) {
+                        if (responseBody == null || response.code() == 429 || response.code() >= 500) {
+                            failed(endpoint, new IOException("RPC endpoint returned HTTP " + response.code()));
+                            return;
+                        }
+                        List<Completion> completions = readResponses(responseBody.byteStream(), byId, uniformDecoder);
+                        router.recordSuccess(endpoint, (System.nanoTime() - started) / 1_000_000);
+                        inFlight.decrementAndGet();
+                        if (done.compareAndSet(false, true)) {
+                            dispatch(completions, byId);
+                        }
+                    } catch (IOException e) {
+                        failed(endpoint, e);
+                    } catch (RuntimeException e) {
+                        failed(endpoint, new IOException("Malformed RPC response: " + e.getMessage(), e));
+                    }
+                }
+            });
+            return true;
+        }
+
+        private void failed(RpcEndpointRouter.Endpoint endpoint, IOException e) {
+            router.recordFailure(endpoint);
+            lastError = e;
+            int remaining = inFlight.decrementAndGet();
+            if (done.get()) {
+                return;
+            }
+            log.warn("Solana RPC request to {} failed: {}", endpoint.getUrl(), e.getMessage());
+            if (!launchNext() && remaining == 0 && done.compareAndSet(false, true)) {
+                failAll(byId, lastError);
+            }
+        }
+    }
+
+    /**
+     * Stream-decode a batch response without completing any futures yet
+     */
+    private List<Completion> readResponses(InputStream in, Map<Long, PendingCall> byId,
+                                           RpcDecoder<?> uniformDecoder) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected RPC response: expected a JSON array but got " + parser.currentToken());
+            }
+
+            List<Completion> completions = new ArrayList<>(byId.size());
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                PendingCall call = null;
+                Object decoded = null;
+                boolean hasResult = false;
+                TokenBuffer buffered = null;
+                JsonNode error = null;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "id" -> call = byId.get(parser.getValueAsLong(-1));
+                        case "result" -> {
+                            hasResult = true;
+                            RpcDecoder<?> decoder = call != null ? call.decoder() : uniformDecoder;
+                            if (decoder != null) {
+                                decoded = decoder.decode(parser);
+                            } else {
+                                // Solana sends the id after the result; keep the tokens until we know the call
+                                buffered = new TokenBuffer(parser);
+                                buffered.copyCurrentStructure(parser);
+                            }
+                        }
+                        case "error" -> error = parser.readValueAsTree();
+                        default -> parser.skipChildren();
+                    }
+                }
+
+                if (call == null) {
+                    continue;
+                }
+                try {
+                    if (error != null) {
+                        completions.add(new Completion(call, call.decoder().onError(error), null));
+                    } else if (buffered != null) {
+                        try (JsonParser replay = buffered.asParser()) {
+                            replay.nextToken();
+                            completions.add(new Completion(call, call.decoder().decode(replay), null));
+                        }
+                    } else if (hasResult) {
+                        completions.add(new Completion(call, decoded, null));
+                    }
+                } catch (IOException e) {
+                    completions.add(new Completion(call, null, e));
+                }
+            }
+            return completions;
+        }
+    }
+
+    private void dispatch(List<Completion> completions, Map<Long, PendingCall> byId) {
+        for (Completion completion : completions) {
+            PendingCall call = byId.remove(completion.call().id());
+            if (call == null) {
+                continue;
+            }
+            if (completion.error() != null) {
+                call.future().completeExceptionally(completion.error());
+            } else {
+                call.future().complete(completion.value());
+            }
+        }
+        failAll(byId, new IOException("No response for request in RPC batch"));
+    }
+
+    private void failAll(Map<Long, PendingCall> byId, Exception e) {
+        for (PendingCall call : byId.values()) {
+            call.future().completeExceptionally(e);
+        }
+        byId.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> typed(CompletableFuture<Object> future) {
+        return (CompletableFuture<T>) (CompletableFuture<?>) future;
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new IOException("RPC call timed out after " + callTimeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for RPC response");
+        }
+    }
+
+    public record RpcCall(String method, Object params) {
+    }
+
+    private record PendingCall(long id, String method, Object params, RpcDecoder<?> decoder,
+                               CompletableFuture<Object> future) {
+    }
+
+    private record Completion(PendingCall call, Object value, IOException error) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.lll.futures.service.solana;
+
+import java.io.IOException;
+
+/**
+ * Error object returned by a Solana JSON-RPC call
+ */
+public class SolanaRpcException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    public SolanaRpcException(int code, String message) {
+        super("RPC error " + code + ": " + message);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,91 @@
+package com.lll.futures.service.solana;
+
+import org.p2p.solanaj.core.PublicKey;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives associated token accounts (ATA) locally and memoizes them in a bounded LRU cache.
+ *
+ * The ATA for (owner, mint) is the program derived address of
+ * [owner, token program, mint] under the associated token program, found by
+ * SHA-256 hashing the seeds with a bump and rejecting points on the ed25519 curve.
+ * Entries are marked confirmed once the account has been seen on-chain, so callers
+ * only need an RPC existence check for accounts that may not exist yet.
+ */
+public class TokenAccountCache {
+
+    public static final PublicKey TOKEN_PROGRAM_ID =
+        new PublicKey("TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA");
+    public static final PublicKey ASSOCIATED_TOKEN_PROGRAM_ID =
+        new PublicKey("ATokenGPvbdGVxr1b2hvZbsiqW5xWH25efTNsLJA8knL");
+
+    private final PublicKey mint;
+    private final Map<String, Entry> entries;
+
+    public TokenAccountCache(String mint, int maxEntries) {
+        this.mint = new PublicKey(mint);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the cached entry for an owner, deriving the ATA if it is not cached yet
+     */
+    public Entry get(String owner) {
+        synchronized (entries) {
+            Entry entry = entries.get(owner);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        Entry derived = new Entry(deriveAssociatedTokenAddress(owner), false);
+        synchronized (entries) {
+            return entries.merge(owner, derived, (existing, ignored) -> existing);
+        }
+    }
+
+    /**
+     * Record the token account that is known to exist on-chain for an owner
+     */
+    public void confirm(String owner, String tokenAccount) {
+        synchronized (entries) {
+            entries.put(owner, new Entry(tokenAccount, true));
+        }
+    }
+
+    /**
+     * Forget an owner, e.g. after a transfer failed against its cached account
+     */
+    public void evict(String owner) {
+        synchronized (entries) {
+            entries.remove(owner);
+        }
+    }
+
+    /**
+     * Derive the associated token account address for an owner and this cache's mint
+     */
+    public String deriveAssociatedTokenAddress(String owner) {
+        try {
+            PublicKey ownerKey = new PublicKey(owner);
+            PublicKey.ProgramDerivedAddress pda = PublicKey.findProgramAddress(
+                List.of(ownerKey.toByteArray(), TOKEN_PROGRAM_ID.toByteArray(), mint.toByteArray()),
+                ASSOCIATED_TOKEN_PROGRAM_ID
+            );
+            return pda.getAddress().toBase58();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot derive token account for " + owner + ": " + e.getMessage(), e);
+        }
+    }
+
+    public record Entry(String address, boolean confirmed) {
+    }
+}
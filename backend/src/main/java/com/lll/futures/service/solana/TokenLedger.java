@@ -0,0 +1,12 @@
+package com.lll.futures.service.solana;
+
+/**
+ * SPL token ledger for the LLL mint, in base units.
+ * Transfers either complete (returning a signature) or throw without moving funds.
+ */
+public interface TokenLedger {
+
+    String transfer(String fromWallet, String toWallet, long amount);
+
+    long getBalance(String wallet);
+}
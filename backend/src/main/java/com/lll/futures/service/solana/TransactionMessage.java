@@ -0,0 +1,29 @@
+package com.lll.futures.service.solana;
+
+import org.p2p.solanaj.core.Message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A SolanaJ message signed by a {@link TransactionSigner}. SolanaJ only sets the fee payer from
+ * Transaction.sign, which always signs with its own per-call key expansion.
+ */
+public class TransactionMessage extends Message {
+
+    /**
+     * Set the blockhash and fee payer, sign, and return the wire-format transaction: the signature
+     * count (one, as a single-byte shortvec), the signature and the message. These are the bytes
+     * Transaction.sign followed by Transaction.serialize would produce.
+     */
+    public byte[] signAndSerialize(TransactionSigner signer, String recentBlockhash) {
+        setRecentBlockHash(recentBlockhash);
+        setFeePayer(signer.getAccount());
+        byte[] message = serialize();
+        byte[] signature = signer.sign(message);
+        return ByteBuffer.allocate(1 + signature.length + message.length)
+            .put((byte) 1)
+            .put(signature)
+            .put(message)
+            .array();
+    }
+}
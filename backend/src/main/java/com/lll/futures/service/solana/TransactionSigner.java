@@ -0,0 +1,38 @@
+package com.lll.futures.service.solana;
+
+import org.p2p.solanaj.core.Account;
+import org.p2p.solanaj.utils.TweetNaclFast;
+
+/**
+ * Signs transaction messages as their fee payer and only signer
+ */
+public interface TransactionSigner {
+
+    /**
+     * The fee payer; only its public key goes into the message
+     */
+    Account getAccount();
+
+    /**
+     * Ed25519 signature of a serialized message
+     */
+    byte[] sign(byte[] message);
+
+    /**
+     * Sign with a SolanaJ account the way Transaction.sign does, expanding the key on every signature.
+     * Fine for one-off user transfers; long-lived keys should keep their expanded key instead.
+     */
+    static TransactionSigner of(Account account) {
+        return new TransactionSigner() {
+            @Override
+            public Account getAccount() {
+                return account;
+            }
+
+            @Override
+            public byte[] sign(byte[] message) {
+                return new TweetNaclFast.Signature(new byte[0], account.getSecretKey()).detached(message);
+            }
+        };
+    }
+}
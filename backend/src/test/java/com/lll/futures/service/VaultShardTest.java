@@ -0,0 +1,57 @@
+package com.lll.futures.service;
+
+import com.lll.futures.service.solana.TransactionMessage;
+import com.lll.futures.service.solana.TransactionSigner;
+import org.junit.jupiter.api.Test;
+import org.p2p.solanaj.core.Account;
+import org.p2p.solanaj.core.PublicKey;
+import org.p2p.solanaj.core.Transaction;
+import org.p2p.solanaj.programs.TokenProgram;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VaultShardTest {
+
+    private static final int SAMPLES = 200;
+
+    @Test
+    void signsTransfersLikeSolanaJ() {
+        Random random = new Random(25519);
+        for (int i = 0; i < SAMPLES; i++) {
+            Account account = new Account();
+            VaultShard shard = new VaultShard(0, account.getPublicKeyBase58(), account.getSecretKey(), 1);
+            PublicKey source = randomKey(random);
+            PublicKey destination = randomKey(random);
+            long amount = random.nextLong(1, Long.MAX_VALUE);
+            String blockhash = randomKey(random).toBase58();
+
+            Transaction expected = new Transaction();
+            expected.addInstruction(TokenProgram.transfer(source, destination, amount, account.getPublicKey()));
+            expected.setRecentBlockHash(blockhash);
+            expected.sign(account);
+
+            TransactionMessage message = new TransactionMessage();
+            message.addInstruction(TokenProgram.transfer(source, destination, amount, account.getPublicKey()));
+
+            assertThat(message.signAndSerialize(shard, blockhash)).isEqualTo(expected.serialize());
+        }
+    }
+
+    @Test
+    void accountSignerMatchesShardSigner() {
+        Account account = new Account();
+        VaultShard shard = new VaultShard(0, account.getPublicKeyBase58(), account.getSecretKey(), 1);
+        byte[] message = new byte[256];
+        new Random(7).nextBytes(message);
+
+        assertThat(shard.sign(message)).isEqualTo(TransactionSigner.of(account).sign(message));
+    }
+
+    private static PublicKey randomKey(Random random) {
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        return new PublicKey(key);
+    }
+}
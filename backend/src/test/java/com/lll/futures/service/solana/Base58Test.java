@@ -0,0 +1,69 @@
+package com.lll.futures.service.solana;
+
+import org.junit.jupiter.api.Test;
+import org.p2p.solanaj.core.PublicKey;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Base58Test {
+
+    private static final int SAMPLES = 20_000;
+
+    @Test
+    void encodesPublicKeysLikeSolanaJ() {
+        Random random = new Random(58);
+        for (int i = 0; i < SAMPLES; i++) {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            // Leading zero bytes map to leading '1's, the usual place for codecs to disagree
+            Arrays.fill(key, 0, random.nextInt(4), (byte) 0);
+
+            assertThat(Base58.encode(key))
+                .as("key %s", Arrays.toString(key))
+                .isEqualTo(new PublicKey(key).toBase58());
+        }
+    }
+
+    @Test
+    void roundTripsInputsOfEveryLength() {
+        Random random = new Random(256);
+        for (int i = 0; i < SAMPLES; i++) {
+            byte[] input = new byte[random.nextInt(65)];
+            random.nextBytes(input);
+            Arrays.fill(input, 0, Math.min(input.length, random.nextInt(4)), (byte) 0);
+
+            assertThat(Base58.decode(Base58.encode(input)))
+                .as("input %s", Arrays.toString(input))
+                .isEqualTo(input);
+        }
+    }
+
+    @Test
+    void decodesKnownAddresses() {
+        assertThat(Base58.encode(new byte[32])).isEqualTo("11111111111111111111111111111111");
+        assertThat(Base58.decode("11111111111111111111111111111111")).isEqualTo(new byte[32]);
+
+        String tokenProgram = "TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA";
+        assertThat(Base58.decode(tokenProgram)).isEqualTo(new PublicKey(tokenProgram).toByteArray());
+        assertThat(Base58.encode(Base58.decode(tokenProgram))).isEqualTo(tokenProgram);
+    }
+
+    @Test
+    void encodesEmptyInputAsEmptyString() {
+        assertThat(Base58.encode(new byte[0])).isEmpty();
+        assertThat(Base58.decode("")).isEmpty();
+    }
+
+    @Test
+    void rejectsCharactersOutsideTheAlphabet() {
+        assertThatThrownBy(() -> Base58.decode("abc0def"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("'0'");
+        assertThatThrownBy(() -> Base58.decode("abcé"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}